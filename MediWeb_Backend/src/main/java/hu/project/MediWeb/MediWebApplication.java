@@ -5,13 +5,15 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import hu.project.MediWeb.config.RateLimitingProperties;
 import hu.project.MediWeb.modules.notification.config.EmailNotificationProperties;
+import hu.project.MediWeb.modules.notification.config.MissedDoseProperties;
 
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 
 @SpringBootApplication
 @EnableScheduling
-@EnableConfigurationProperties(EmailNotificationProperties.class)
+@EnableConfigurationProperties({EmailNotificationProperties.class, MissedDoseProperties.class, RateLimitingProperties.class})
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
 public class MediWebApplication {
 
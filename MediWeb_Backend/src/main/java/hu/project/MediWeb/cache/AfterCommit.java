@@ -0,0 +1,27 @@
+package hu.project.MediWeb.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Gyorsítótár-érvénytelenítés tranzakción belüli írásokhoz. Az érvénytelenítés
+ * azonnal lefut, futó tranzakció esetén pedig a lezárulta után újra, hogy egy
+ * közbeeső olvasás ne tölthesse vissza a még véglegesítés előtti állapotot.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void runNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package hu.project.MediWeb.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Méretkorlátos, hozzáférési sorrendű (LRU) tábla bejegyzésenkénti lejárattal.
+ * Nulla TTL esetén semmit nem tárol. Metrikanév megadásakor a találatokat és
+ * tévedéseket "&lt;név&gt;.requests" számlálóba, a méretet "&lt;név&gt;.size" mérőbe jelenti.
+ */
+public class LruTtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries;
+    private final Duration ttl;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public LruTtlCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, null, null);
+    }
+
+    public LruTtlCache(int maxEntries, Duration ttl, MeterRegistry meterRegistry, String metricName) {
+        int capacity = Math.max(maxEntries, 1);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.ttl = ttl.isNegative() ? Duration.ZERO : ttl;
+        if (meterRegistry != null && metricName != null) {
+            this.hitCounter = Counter.builder(metricName + ".requests").tag("result", "hit").register(meterRegistry);
+            this.missCounter = Counter.builder(metricName + ".requests").tag("result", "miss").register(meterRegistry);
+            Gauge.builder(metricName + ".size", this, LruTtlCache::size).register(meterRegistry);
+        } else {
+            this.hitCounter = null;
+            this.missCounter = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return !ttl.isZero();
+    }
+
+    /**
+     * Az érvényes bejegyzés értéke, vagy null; a lejárt bejegyzést eltávolítja.
+     */
+    public V get(K key) {
+        V value = null;
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt().isAfter(Instant.now())) {
+                value = entry.value();
+            } else if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        record(value != null);
+        return value;
+    }
+
+    public void put(K key, V value) {
+        putIf(key, value, () -> true);
+    }
+
+    /**
+     * Csak akkor tárol, ha a feltétel a tábla zárja alatt igaz. Így a feltételben
+     * ellenőrzött érvénytelenítési generáció és a tárolás között nem csúszhat be törlés.
+     */
+    public void putIf(K key, V value, BooleanSupplier condition) {
+        if (key == null || value == null || !isEnabled()) {
+            return;
+        }
+        synchronized (entries) {
+            if (condition.getAsBoolean()) {
+                entries.put(key, new Entry<>(value, Instant.now().plus(ttl)));
+            }
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void removeIf(BiPredicate<? super K, ? super V> predicate) {
+        synchronized (entries) {
+            entries.entrySet().removeIf(entry -> predicate.test(entry.getKey(), entry.getValue().value()));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        if (hitCounter == null) {
+            return 0.0;
+        }
+        double hits = hitCounter.count();
+        double total = hits + missCounter.count();
+        return total > 0 ? hits / total : 0.0;
+    }
+
+    private void record(boolean hit) {
+        if (hitCounter != null) {
+            (hit ? hitCounter : missCounter).increment();
+        }
+    }
+
+    private record Entry<V>(V value, Instant expiresAt) {
+    }
+}
@@ -1,10 +1,17 @@
 package hu.project.MediWeb.config;
 
+import hu.project.MediWeb.modules.notification.service.IntakeLogPartitionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.annotation.Order;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
 
 @Component
 @Order(1)
@@ -13,6 +20,12 @@ public class DatabaseMigrationRunner implements CommandLineRunner {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private IntakeLogPartitionManager intakeLogPartitionManager;
+
     @Override
     public void run(String... args) throws Exception {
         System.out.println("🔄 Running database migration checks...");
@@ -33,6 +46,73 @@ public class DatabaseMigrationRunner implements CommandLineRunner {
                     "token VARCHAR(255) NOT NULL UNIQUE, " +
                     "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
 
+            // Adatexport-kérések feldolgozási állapota
+            addColumnIfNotExists("user_data_requests", "started_at", "TIMESTAMP");
+            addColumnIfNotExists("user_data_requests", "result_location", "TEXT");
+
+            // OGYÉI szűrőlisták helyi tükre
+            createTableIfNotExists("filter_options",
+                    "CREATE TABLE filter_options (" +
+                    "id SERIAL PRIMARY KEY, " +
+                    "select_name VARCHAR(100) NOT NULL, " +
+                    "option_value INTEGER NOT NULL, " +
+                    "name VARCHAR(500) NOT NULL, " +
+                    "position INTEGER NOT NULL, " +
+                    "fetched_at TIMESTAMP NOT NULL, " +
+                    "UNIQUE (select_name, option_value))");
+
+            // Napi bevételi összesítő a statisztikákhoz
+            createTableIfNotExists("intake_daily_rollup",
+                    "CREATE TABLE intake_daily_rollup (" +
+                    "id BIGSERIAL PRIMARY KEY, " +
+                    "user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE, " +
+                    "profile_medication_id INTEGER NOT NULL REFERENCES profile_medications(id) ON DELETE CASCADE, " +
+                    "rollup_date DATE NOT NULL, " +
+                    "atc_group VARCHAR(1), " +
+                    "taken_count INTEGER NOT NULL DEFAULT 0, " +
+                    "missed_count INTEGER NOT NULL DEFAULT 0, " +
+                    "hour_histogram INTEGER[] NOT NULL, " +
+                    "UNIQUE (profile_medication_id, rollup_date))");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_intake_daily_rollup_user_date " +
+                    "ON intake_daily_rollup (user_id, rollup_date)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_medication_intake_log_date_pm " +
+                    "ON medication_intake_log (intake_date, profile_medication_id)");
+            backfillIntakeRollupIfEmpty();
+
+            // Bevételi napló havi partíciókra bontása
+            partitionIntakeLogIfNeeded();
+
+            // Kulcsszó-népszerűség napi mentései
+            createTableIfNotExists("keyword_popularity",
+                    "CREATE TABLE keyword_popularity (" +
+                    "id BIGSERIAL PRIMARY KEY, " +
+                    "keyword VARCHAR(200) NOT NULL, " +
+                    "bucket_date DATE NOT NULL, " +
+                    "hit_count BIGINT NOT NULL, " +
+                    "error_bound BIGINT NOT NULL DEFAULT 0, " +
+                    "UNIQUE (keyword, bucket_date))");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_keyword_popularity_bucket_date " +
+                    "ON keyword_popularity (bucket_date)");
+
+            // Gyógyszerenkénti értékelési összesítő
+            createTableIfNotExists("medication_rating_aggregate",
+                    "CREATE TABLE medication_rating_aggregate (" +
+                    "item_id INTEGER PRIMARY KEY, " +
+                    "review_count BIGINT NOT NULL DEFAULT 0, " +
+                    "rating_sum BIGINT NOT NULL DEFAULT 0, " +
+                    "rating_histogram INTEGER[] NOT NULL, " +
+                    "updated_at TIMESTAMP)");
+            backfillRatingAggregateIfEmpty();
+
+            // Kép URL-ek legutóbbi ellenőrzési eredménye
+            createTableIfNotExists("image_url_validation",
+                    "CREATE TABLE image_url_validation (" +
+                    "url_hash CHAR(32) PRIMARY KEY, " +
+                    "url TEXT NOT NULL, " +
+                    "valid BOOLEAN NOT NULL, " +
+                    "status_code INTEGER, " +
+                    "validated_at TIMESTAMP NOT NULL)");
+
             System.out.println("✅ Database migration completed successfully!");
 
         } catch (Exception e) {
@@ -41,6 +121,141 @@ public class DatabaseMigrationRunner implements CommandLineRunner {
         }
     }
 
+    private void backfillIntakeRollupIfEmpty() {
+        try {
+            Boolean hasRollups = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM intake_daily_rollup)", Boolean.class);
+            Boolean hasLogs = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM medication_intake_log)", Boolean.class);
+            if (Boolean.TRUE.equals(hasRollups) || !Boolean.TRUE.equals(hasLogs)) {
+                return;
+            }
+
+            StringBuilder histogram = new StringBuilder("ARRAY[");
+            for (int hour = 0; hour < 24; hour++) {
+                if (hour > 0) {
+                    histogram.append(", ");
+                }
+                histogram.append("COUNT(*) FILTER (WHERE EXTRACT(HOUR FROM l.intake_time) = ").append(hour).append(")::int");
+            }
+            histogram.append("]");
+
+            int rows = jdbcTemplate.update(
+                    "INSERT INTO intake_daily_rollup " +
+                    "(user_id, profile_medication_id, rollup_date, atc_group, taken_count, missed_count, hour_histogram) " +
+                    "SELECT p.user_id, l.profile_medication_id, l.intake_date, " +
+                    "UPPER(LEFT(NULLIF(TRIM(m.atc_code), ''), 1)), " +
+                    "COUNT(*) FILTER (WHERE l.taken), COUNT(*) FILTER (WHERE NOT l.taken), " + histogram + " " +
+                    "FROM medication_intake_log l " +
+                    "JOIN profile_medications pm ON pm.id = l.profile_medication_id " +
+                    "JOIN profiles p ON p.id = pm.profile_id " +
+                    "JOIN medications m ON m.id = pm.medication_id " +
+                    "GROUP BY p.user_id, l.profile_medication_id, l.intake_date, m.atc_code " +
+                    "ON CONFLICT (profile_medication_id, rollup_date) DO NOTHING");
+            System.out.println("✅ Backfilled intake_daily_rollup rows: " + rows);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to backfill intake_daily_rollup: " + e.getMessage());
+        }
+    }
+
+    private void backfillRatingAggregateIfEmpty() {
+        try {
+            Boolean hasAggregates = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM medication_rating_aggregate)", Boolean.class);
+            Boolean hasReviews = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM reviews)", Boolean.class);
+            if (Boolean.TRUE.equals(hasAggregates) || !Boolean.TRUE.equals(hasReviews)) {
+                return;
+            }
+
+            int rows = jdbcTemplate.update(
+                    "INSERT INTO medication_rating_aggregate " +
+                    "(item_id, review_count, rating_sum, rating_histogram, updated_at) " +
+                    "SELECT item_id, COUNT(*), SUM(rating), ARRAY[" +
+                    "COUNT(*) FILTER (WHERE rating = 1)::int, COUNT(*) FILTER (WHERE rating = 2)::int, " +
+                    "COUNT(*) FILTER (WHERE rating = 3)::int, COUNT(*) FILTER (WHERE rating = 4)::int, " +
+                    "COUNT(*) FILTER (WHERE rating = 5)::int], CURRENT_TIMESTAMP " +
+                    "FROM reviews WHERE item_id IS NOT NULL AND rating BETWEEN 1 AND 5 " +
+                    "GROUP BY item_id " +
+                    "ON CONFLICT (item_id) DO NOTHING");
+            System.out.println("✅ Backfilled medication_rating_aggregate rows: " + rows);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to backfill medication_rating_aggregate: " + e.getMessage());
+        }
+    }
+
+    private void partitionIntakeLogIfNeeded() {
+        if (!intakeLogPartitionManager.isEnabled()) {
+            return;
+        }
+        try {
+            if (intakeLogPartitionManager.isPartitioned()) {
+                intakeLogPartitionManager.ensureUpcomingPartitions();
+                System.out.println("ℹ️ medication_intake_log is already partitioned");
+                return;
+            }
+
+            System.out.println("🔄 Converting medication_intake_log to monthly partitions...");
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE medication_intake_log RENAME TO medication_intake_log_legacy");
+                jdbcTemplate.execute("DROP INDEX IF EXISTS idx_medication_intake_log_date_pm");
+                jdbcTemplate.execute("CREATE TABLE medication_intake_log (" +
+                        "id SERIAL, " +
+                        "profile_medication_id INTEGER NOT NULL REFERENCES profile_medications(id) ON DELETE CASCADE, " +
+                        "intake_date DATE NOT NULL, " +
+                        "intake_time TIME NOT NULL, " +
+                        "taken BOOLEAN NOT NULL, " +
+                        "recorded_at TIMESTAMP, " +
+                        "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                        "PRIMARY KEY (id, intake_date), " +
+                        "UNIQUE (profile_medication_id, intake_date, intake_time)) " +
+                        "PARTITION BY RANGE (intake_date)");
+
+                Date oldest = jdbcTemplate.queryForObject(
+                        "SELECT MIN(intake_date) FROM medication_intake_log_legacy", Date.class);
+                Date newest = jdbcTemplate.queryForObject(
+                        "SELECT MAX(intake_date) FROM medication_intake_log_legacy", Date.class);
+                YearMonth current = YearMonth.now();
+                YearMonth from = oldest != null ? YearMonth.from(oldest.toLocalDate()) : current.minusMonths(1);
+                YearMonth to = current.plusMonths(intakeLogPartitionManager.getMonthsAhead());
+                if (newest != null && YearMonth.from(newest.toLocalDate()).isAfter(to)) {
+                    to = YearMonth.from(newest.toLocalDate());
+                }
+                // Hiba esetén az egész átalakítás visszagörgetődik, a régi tábla érintetlen marad
+                intakeLogPartitionManager.createPartitionsOrFail(from.isBefore(current.minusMonths(1)) ? from : current.minusMonths(1), to);
+                intakeLogPartitionManager.ensureDefaultPartition();
+
+                String columns = legacyIntakeLogColumns();
+                int rows = jdbcTemplate.update("INSERT INTO medication_intake_log (" + columns + ") " +
+                        "SELECT " + columns + " FROM medication_intake_log_legacy");
+                jdbcTemplate.execute("SELECT setval(pg_get_serial_sequence('medication_intake_log', 'id'), " +
+                        "COALESCE((SELECT MAX(id) FROM medication_intake_log), 0) + 1, false)");
+                jdbcTemplate.execute("DROP TABLE medication_intake_log_legacy");
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_medication_intake_log_date_pm " +
+                        "ON medication_intake_log (intake_date, profile_medication_id)");
+                System.out.println("✅ Partitioned medication_intake_log (" + rows + " rows, " + from + " - " + to + ")");
+            });
+        } catch (Exception e) {
+            System.err.println("❌ Failed to partition medication_intake_log: " + e.getMessage());
+        }
+    }
+
+    private String legacyIntakeLogColumns() {
+        List<String> existing = jdbcTemplate.queryForList(
+                "SELECT column_name FROM information_schema.columns " +
+                "WHERE table_schema = 'public' AND table_name = 'medication_intake_log_legacy'", String.class);
+        StringBuilder columns = new StringBuilder();
+        for (String column : List.of("id", "profile_medication_id", "intake_date", "intake_time", "taken", "recorded_at", "created_at")) {
+            if (existing.contains(column)) {
+                if (columns.length() > 0) {
+                    columns.append(", ");
+                }
+                columns.append(column);
+            }
+        }
+        return columns.toString();
+    }
+
     private void createTableIfNotExists(String tableName, String createSql) {
         try {
             String checkSql = "SELECT table_name FROM information_schema.tables " +
@@ -0,0 +1,41 @@
+package hu.project.MediWeb.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "rate-limiting")
+public class RateLimitingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Szabályonként külön keret. Az útvonalakkal megadott szabályt a szűrő minden
+     * kérésnél terheli; az útvonal nélkülit a kód, közvetlenül a külső hívás előtt.
+     */
+    private Map<String, Rule> rules = new LinkedHashMap<>();
+
+    private List<String> whitelistPaths = new ArrayList<>();
+
+    /** A nyilvántartott kliensek felső korlátja szabályonként; felette a legrégebben látott kerül ki. */
+    private int maxTrackedClients = 10000;
+
+    private int stripes = 32;
+
+    @Data
+    public static class Rule {
+
+        /** Ablakonként engedett kérések száma kliensenként (felhasználó vagy IP). */
+        private int limit = 10;
+
+        /** Ennyi másodperc alatt töltődik vissza a teljes keret. */
+        private int windowSeconds = 60;
+
+        private List<String> paths = new ArrayList<>();
+    }
+}
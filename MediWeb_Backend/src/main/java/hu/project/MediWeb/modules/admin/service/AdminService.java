@@ -10,6 +10,7 @@ import hu.project.MediWeb.modules.review.entity.Review;
 import hu.project.MediWeb.modules.review.entity.ReviewReport;
 import hu.project.MediWeb.modules.review.repository.ReviewRepository;
 import hu.project.MediWeb.modules.review.repository.ReviewReportRepository;
+import hu.project.MediWeb.modules.review.service.ReviewRatingAggregator;
 import hu.project.MediWeb.modules.user.entity.User;
 import hu.project.MediWeb.modules.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +19,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class AdminService {
@@ -26,23 +33,13 @@ public class AdminService {
     private final ReviewRepository reviewRepository;
     private final ReviewReportRepository reviewReportRepository;
     private final MedicationRepository medicationRepository;
+    private final ReviewRatingAggregator reviewRatingAggregator;
+    private final AdminStatsQueryService adminStatsQueryService;
+
+    private static final String UNKNOWN_MEDICATION = "Ismeretlen gyógyszer";
 
     public AdminDashboardDTO getDashboardStats() {
-        long totalUsers = userRepository.count();
-        long activeUsers = userRepository.countByIsActive(true);
-        long totalMedications = medicationRepository.count();
-        long totalReviews = reviewRepository.count();
-        long uncheckedReviews = reviewRepository.findByChecked(false, Pageable.unpaged()).getTotalElements();
-        long reportedReviews = reviewReportRepository.count();
-
-        return AdminDashboardDTO.builder()
-                .totalUsers(totalUsers)
-                .activeUsers(activeUsers)
-                .totalMedications(totalMedications)
-                .totalReviews(totalReviews)
-                .uncheckedReviews(uncheckedReviews)
-                .reportedReviews(reportedReviews)
-                .build();
+        return adminStatsQueryService.getDashboardStats();
     }
 
     public Page<AdminUserDTO> getUsers(String search, Pageable pageable) {
@@ -61,21 +58,26 @@ public class AdminService {
         if (checked != null) {
             reviews = reviewRepository.findByChecked(checked, pageable);
         } else {
-            reviews = reviewRepository.findAll(pageable);
+            reviews = reviewRepository.findAllBy(pageable);
         }
-        return reviews.map(review -> {
-            String medicationName = resolveMedicationName(review.getItemId());
-            return AdminReviewDTO.from(review, medicationName);
-        });
+        Map<Integer, String> medicationNames = resolveMedicationNames(reviews.map(Review::getItemId).getContent());
+        return reviews.map(review -> AdminReviewDTO.from(review, medicationName(medicationNames, review.getItemId())));
     }
 
     public Page<ReviewReportDTO> getReportedReviews(Pageable pageable) {
         Page<ReviewReport> reports = reviewReportRepository.findAllBy(pageable);
-        return reports.map(report -> {
-            String medicationName = resolveMedicationName(report.getReview().getItemId());
-            long totalReports = reviewReportRepository.countByReviewId(report.getReview().getId());
-            return ReviewReportDTO.from(report, medicationName, totalReports);
-        });
+        if (reports.isEmpty()) {
+            return reports.map(report -> ReviewReportDTO.from(report, null, 0));
+        }
+        Map<Integer, String> medicationNames = resolveMedicationNames(
+                reports.map(report -> report.getReview().getItemId()).getContent());
+        Map<Long, Long> reportCounts = reviewReportRepository.countByReviewIds(
+                        reports.map(report -> report.getReview().getId()).toSet()).stream()
+                .collect(Collectors.toMap(ReviewReportRepository.ReviewReportCount::getReviewId,
+                        ReviewReportRepository.ReviewReportCount::getTotal));
+        return reports.map(report -> ReviewReportDTO.from(report,
+                medicationName(medicationNames, report.getReview().getItemId()),
+                reportCounts.getOrDefault(report.getReview().getId(), 0L)));
     }
 
     @Transactional
@@ -84,13 +86,18 @@ public class AdminService {
             review.setChecked(true);
             reviewRepository.save(review);
         });
+        adminStatsQueryService.invalidate();
     }
 
     @Transactional
     public void deleteReview(Long reviewId) {
         // Delete associated reports first (cascade should handle this, but be explicit)
+        Review review = reviewRepository.findById(reviewId).orElse(null);
+        if (review == null) return;
         reviewReportRepository.deleteByReviewId(reviewId);
-        reviewRepository.deleteById(reviewId);
+        reviewRepository.delete(review);
+        reviewRatingAggregator.reviewRemoved(review.getItemId(), review.getRating());
+        adminStatsQueryService.invalidate();
     }
 
     @Transactional
@@ -109,12 +116,21 @@ public class AdminService {
                 reviewRepository.save(review);
             });
         }
+        adminStatsQueryService.invalidate();
+    }
+
+    private Map<Integer, String> resolveMedicationNames(Collection<Integer> itemIds) {
+        Set<Long> ids = itemIds.stream()
+                .filter(Objects::nonNull)
+                .map(Long::valueOf)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) return Map.of();
+        return medicationRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(medication -> medication.getId().intValue(), Medication::getName, (a, b) -> a));
     }
 
-    private String resolveMedicationName(Integer itemId) {
-        if (itemId == null) return "Ismeretlen gyógyszer";
-        return medicationRepository.findById(Long.valueOf(itemId))
-                .map(Medication::getName)
-                .orElse("Ismeretlen gyógyszer");
+    private static String medicationName(Map<Integer, String> medicationNames, Integer itemId) {
+        if (itemId == null) return UNKNOWN_MEDICATION;
+        return medicationNames.getOrDefault(itemId, UNKNOWN_MEDICATION);
     }
 }
@@ -0,0 +1,90 @@
+package hu.project.MediWeb.modules.admin.service;
+
+import hu.project.MediWeb.cache.AfterCommit;
+import hu.project.MediWeb.modules.admin.dto.AdminDashboardDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Az admin irányítópult számlálói egyetlen, csak számláló allekérdezésekből álló
+ * utasítással, így a számok egy pillanatképből származnak, és egyetlen sor sem
+ * töltődik a memóriába. Az eredményt néhány másodpercig megtartjuk; az admin
+ * módosítások után azonnal és a tranzakció lezárulta után is érvénytelenítjük.
+ */
+@Slf4j
+@Service
+public class AdminStatsQueryService {
+
+    private static final String DASHBOARD_SNAPSHOT = "SELECT " +
+            "(SELECT COUNT(*) FROM users) AS total_users, " +
+            "(SELECT COUNT(*) FROM users WHERE is_active = TRUE) AS active_users, " +
+            "(SELECT COUNT(*) FROM medications) AS total_medications, " +
+            "(SELECT COUNT(*) FROM reviews) AS total_reviews, " +
+            "(SELECT COUNT(*) FROM reviews WHERE checked = FALSE) AS unchecked_reviews, " +
+            "(SELECT COUNT(*) FROM review_reports) AS reported_reviews";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlNanos;
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public AdminStatsQueryService(JdbcTemplate jdbcTemplate,
+                                  @Value("${admin.dashboard.cache-ttl-seconds:5}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(ttlSeconds, 0));
+    }
+
+    public AdminDashboardDTO getDashboardStats() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current != null && now - current.loadedAt() < ttlNanos) {
+            return current.stats();
+        }
+        synchronized (this) {
+            // Egyszerre érkező kérések közül csak az első fordul az adatbázishoz
+            current = snapshot;
+            if (current != null && System.nanoTime() - current.loadedAt() < ttlNanos) {
+                return current.stats();
+            }
+            long generation = invalidations.get();
+            AdminDashboardDTO stats = load();
+            // Betöltés közbeni módosításnál a még véglegesítés előtti számokat nem tároljuk el
+            if (invalidations.get() == generation) {
+                snapshot = new Snapshot(stats, System.nanoTime());
+            }
+            return stats;
+        }
+    }
+
+    public void invalidate() {
+        AfterCommit.runNowAndAfterCommit(() -> {
+            // A betöltés zárja alatt, hogy az ellenőrzés és a tárolás közé ne csúszhasson be
+            synchronized (this) {
+                invalidations.incrementAndGet();
+                snapshot = null;
+            }
+        });
+    }
+
+    private AdminDashboardDTO load() {
+        long started = System.currentTimeMillis();
+        AdminDashboardDTO stats = jdbcTemplate.queryForObject(DASHBOARD_SNAPSHOT, (rs, rowNum) -> AdminDashboardDTO.builder()
+                .totalUsers(rs.getLong("total_users"))
+                .activeUsers(rs.getLong("active_users"))
+                .totalMedications(rs.getLong("total_medications"))
+                .totalReviews(rs.getLong("total_reviews"))
+                .uncheckedReviews(rs.getLong("unchecked_reviews"))
+                .reportedReviews(rs.getLong("reported_reviews"))
+                .build());
+        log.debug("[ADMIN] Irányítópult számlálói betöltve ({} ms)", System.currentTimeMillis() - started);
+        return stats;
+    }
+
+    private record Snapshot(AdminDashboardDTO stats, long loadedAt) {
+    }
+}
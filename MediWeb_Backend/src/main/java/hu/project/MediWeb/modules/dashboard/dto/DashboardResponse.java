@@ -12,4 +12,6 @@ public class DashboardResponse {
     UpcomingReminderDTO upcomingReminder;
     List<PopularMedicationDTO> popularMedications;
     List<DashboardMedicationDTO> todaysMedications;
+    boolean partial;
+    List<String> unavailableSections;
 }
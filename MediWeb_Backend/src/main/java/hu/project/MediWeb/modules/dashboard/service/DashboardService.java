@@ -9,128 +9,244 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import hu.project.MediWeb.modules.dashboard.dto.DashboardMedicationDTO;
 import hu.project.MediWeb.modules.dashboard.dto.DashboardResponse;
 import hu.project.MediWeb.modules.dashboard.dto.DashboardSummaryDTO;
 import hu.project.MediWeb.modules.dashboard.dto.PopularMedicationDTO;
 import hu.project.MediWeb.modules.dashboard.dto.UpcomingReminderDTO;
-import hu.project.MediWeb.modules.medication.entity.Medication;
-import hu.project.MediWeb.modules.medication.repository.MedicationRepository;
 import hu.project.MediWeb.modules.notification.dto.TodaysMedicationDTO;
 import hu.project.MediWeb.modules.notification.service.MedicationIntakeService;
 import hu.project.MediWeb.modules.profile.entity.Profile;
 import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
 import hu.project.MediWeb.modules.profile.repository.ProfileMedicationRepository;
 import hu.project.MediWeb.modules.profile.repository.ProfileRepository;
-import hu.project.MediWeb.modules.profile.repository.projection.PopularMedicationProjection;
-import hu.project.MediWeb.modules.search.repository.SearchRepository;
-import hu.project.MediWeb.modules.search.repository.projection.SearchKeywordProjection;
 import hu.project.MediWeb.modules.statistic.entity.Statistic;
 import hu.project.MediWeb.modules.statistic.service.StatisticService;
+import hu.project.MediWeb.modules.statistic.service.UserViewCache;
 import hu.project.MediWeb.modules.user.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @Transactional(readOnly = true)
 public class DashboardService {
 
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
     private static final int DEFAULT_POPULAR_LIMIT = 6;
+    private static final String SECTION_PERSONAL = "personal";
+    private static final String SECTION_POPULAR = "popular";
 
     private final ProfileRepository profileRepository;
     private final ProfileMedicationRepository profileMedicationRepository;
     private final MedicationIntakeService medicationIntakeService;
     private final StatisticService statisticService;
-    private final SearchRepository searchRepository;
-    private final MedicationRepository medicationRepository;
+    private final PopularMedicationsSnapshot popularMedicationsSnapshot;
+    private final UserViewCache userViewCache;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate personalTransaction;
+    private final TransactionTemplate popularTransaction;
+    private final boolean asyncEnabled;
+    private final long personalTimeoutMs;
+    private final long popularTimeoutMs;
+    private final ExecutorService sectionExecutor;
 
     public DashboardService(ProfileRepository profileRepository,
                             ProfileMedicationRepository profileMedicationRepository,
                             MedicationIntakeService medicationIntakeService,
                             StatisticService statisticService,
-                            SearchRepository searchRepository,
-                            MedicationRepository medicationRepository) {
+                            PopularMedicationsSnapshot popularMedicationsSnapshot,
+                            UserViewCache userViewCache,
+                            MeterRegistry meterRegistry,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${dashboard.async.enabled:true}") boolean asyncEnabled,
+                            @Value("${dashboard.async.pool-size:8}") int poolSize,
+                            @Value("${dashboard.async.queue-capacity:32}") int queueCapacity,
+                            @Value("${dashboard.async.personal-timeout-ms:2000}") long personalTimeoutMs,
+                            @Value("${dashboard.async.popular-timeout-ms:500}") long popularTimeoutMs) {
         this.profileRepository = profileRepository;
         this.profileMedicationRepository = profileMedicationRepository;
         this.medicationIntakeService = medicationIntakeService;
         this.statisticService = statisticService;
-        this.searchRepository = searchRepository;
-        this.medicationRepository = medicationRepository;
+        this.popularMedicationsSnapshot = popularMedicationsSnapshot;
+        this.userViewCache = userViewCache;
+        this.meterRegistry = meterRegistry;
+        this.asyncEnabled = asyncEnabled;
+        this.personalTimeoutMs = Math.max(personalTimeoutMs, 1);
+        this.popularTimeoutMs = Math.max(popularTimeoutMs, 1);
+        // A lekérdezések a szakasz időkorlátjával futnak, így a lejárt szakasz szála sem ragad be
+        this.personalTransaction = readOnlyTransaction(transactionManager, this.personalTimeoutMs);
+        this.popularTransaction = readOnlyTransaction(transactionManager, this.popularTimeoutMs);
+        AtomicInteger threadCounter = new AtomicInteger();
+        int threads = Math.max(poolSize, 2);
+        // Telített sornál a szakaszt elutasítjuk, és részleges választ adunk; a kérés szálán nem futtatjuk
+        this.sectionExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-section-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
     }
 
+    private static TransactionTemplate readOnlyTransaction(PlatformTransactionManager transactionManager, long timeoutMs) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setTimeout((int) Math.max(TimeUnit.MILLISECONDS.toSeconds(timeoutMs + 999), 1));
+        return template;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sectionExecutor.shutdownNow();
+    }
+
+    /**
+     * A dashboard összeállítása. Aszinkron módban a felhasználói adatok és a
+     * népszerű lista párhuzamosan, saját időkorláttal töltődik; a lejárt szakasz
+     * kimarad, és a válasz részlegesként jelölve érkezik. A tranzakciót a
+     * szakaszok maguk nyitják, így a hívó szál nem foglal kapcsolatot várakozás közben.
+     * Az időkorlát a szakasz indulásától számít, a sorban állás nem fogyasztja.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DashboardResponse buildDashboardForUser(User user) {
         if (user == null) {
             throw new IllegalArgumentException("User must not be null when building dashboard.");
         }
 
-        List<Profile> profiles = profileRepository.findAllByUser(user);
-        List<Long> profileIds = profiles.stream().map(Profile::getId).toList();
-        List<ProfileMedication> profileMedications = profileIds.isEmpty()
-                ? Collections.emptyList()
-                : profileMedicationRepository.findByProfileIdIn(profileIds);
+        if (!asyncEnabled) {
+            PersonalSection personal = timed(SECTION_PERSONAL, () -> loadPersonalSection(user));
+            List<PopularMedicationDTO> popular = timed(SECTION_POPULAR, () -> getPopularMedications(DEFAULT_POPULAR_LIMIT));
+            return assemble(personal, popular, List.of());
+        }
+
+        SectionTask<PersonalSection> personalTask = new SectionTask<>(SECTION_PERSONAL, () -> loadPersonalSection(user));
+        SectionTask<List<PopularMedicationDTO>> popularTask =
+                new SectionTask<>(SECTION_POPULAR, () -> getPopularMedications(DEFAULT_POPULAR_LIMIT));
+        CompletableFuture<PersonalSection> personalFuture = submitSection(personalTask);
+        CompletableFuture<List<PopularMedicationDTO>> popularFuture = submitSection(popularTask);
+
+        List<String> unavailable = new ArrayList<>();
+        PersonalSection personal = awaitSection(personalTask, personalFuture, personalTimeoutMs, unavailable);
+        List<PopularMedicationDTO> popular = awaitSection(popularTask, popularFuture, popularTimeoutMs, unavailable);
+        return assemble(personal, popular, unavailable);
+    }
+
+    /**
+     * A felhasználói szakasz a napi gyorsítótárból, változás esetén újraszámolva.
+     */
+    private PersonalSection loadPersonalSection(User user) {
+        String view = "dashboard:" + LocalDate.now();
+        return userViewCache.getOrCompute(user.getId(), view, () -> computePersonalSection(user));
+    }
 
-        Map<Long, ProfileMedication> profileMedicationLookup = profileMedications.stream()
-                .collect(Collectors.toMap(ProfileMedication::getId, pm -> pm));
+    private PersonalSection computePersonalSection(User user) {
+        return personalTransaction.execute(status -> {
+            List<Profile> profiles = profileRepository.findAllByUser(user);
+            List<Long> profileIds = profiles.stream().map(Profile::getId).toList();
+            List<ProfileMedication> profileMedications = profileIds.isEmpty()
+                    ? Collections.emptyList()
+                    : profileMedicationRepository.findByProfileIdIn(profileIds);
 
-        DashboardComputationContext context = collectDailyMedicationData(profiles, profileMedicationLookup);
+            Map<Long, ProfileMedication> profileMedicationLookup = profileMedications.stream()
+                    .collect(Collectors.toMap(ProfileMedication::getId, pm -> pm));
 
-        DashboardSummaryDTO summary = buildSummary(user, profileMedications.size(), context);
-        UpcomingReminderDTO upcomingReminder = calculateUpcomingReminder(context.todaysMedications());
-        List<PopularMedicationDTO> popularMedications = getPopularMedications(DEFAULT_POPULAR_LIMIT);
+            DashboardComputationContext context = timed("today",
+                    () -> collectDailyMedicationData(profiles, profileMedications, profileMedicationLookup));
 
+            DashboardSummaryDTO summary = timed("summary", () -> buildSummary(user, profileMedications.size(), context));
+            return new PersonalSection(summary, context.todaysMedications());
+        });
+    }
+
+    private DashboardResponse assemble(PersonalSection personal,
+                                       List<PopularMedicationDTO> popular,
+                                       List<String> unavailableSections) {
+        // A lejárt/közelgő állapot az aktuális időtől függ, ezért nem kerül gyorsítótárba
+        UpcomingReminderDTO upcomingReminder = personal != null
+                ? timed("upcoming", () -> calculateUpcomingReminder(personal.todaysMedications()))
+                : null;
         return DashboardResponse.builder()
-                .summary(summary)
+                .summary(personal != null ? personal.summary() : null)
                 .upcomingReminder(upcomingReminder)
-                .popularMedications(popularMedications)
-                .todaysMedications(context.todaysMedications())
+                .popularMedications(popular != null ? popular : List.of())
+                .todaysMedications(personal != null ? personal.todaysMedications() : List.of())
+                .partial(!unavailableSections.isEmpty())
+                .unavailableSections(List.copyOf(unavailableSections))
                 .build();
     }
 
-    public List<PopularMedicationDTO> getPopularMedications(int limit) {
-        List<PopularMedicationDTO> popularFromSearches = getPopularFromSearches(limit);
-
-        if (popularFromSearches.size() >= limit) {
-            return popularFromSearches;
+    private <T> CompletableFuture<T> submitSection(SectionTask<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, sectionExecutor);
+        } catch (RejectedExecutionException e) {
+            return null;
         }
+    }
 
-        int remaining = limit - popularFromSearches.size();
-        List<PopularMedicationDTO> fallback = getPopularFromProfileAssignments(remaining);
-
-        if (fallback.isEmpty()) {
-            return popularFromSearches;
+    private <T> T awaitSection(SectionTask<T> task,
+                               CompletableFuture<T> future,
+                               long timeoutMs,
+                               List<String> unavailable) {
+        String section = task.section();
+        if (future == null) {
+            meterRegistry.counter("mediweb.dashboard.section.timeouts", "section", section).increment();
+            log.warn("[DASHBOARD] A(z) {} szakasz nem indítható, a végrehajtó telített; részleges választ adunk", section);
+            unavailable.add(section);
+            return null;
         }
-
-        Set<Long> alreadyIncludedIds = popularFromSearches.stream()
-                .map(PopularMedicationDTO::getItemId)
-                .filter(id -> id != null && id > 0)
-                .collect(Collectors.toSet());
-
-        Set<String> alreadyIncludedNames = popularFromSearches.stream()
-                .map(PopularMedicationDTO::getName)
-                .filter(name -> name != null && !name.isBlank())
-                .map(String::toLowerCase)
-                .collect(Collectors.toSet());
-
-        for (PopularMedicationDTO item : fallback) {
-            boolean knownId = item.getItemId() != null && alreadyIncludedIds.contains(item.getItemId());
-            boolean knownName = item.getName() != null && alreadyIncludedNames.contains(item.getName().toLowerCase());
-            if (!knownId && !knownName) {
-                popularFromSearches.add(item);
-            }
-            if (popularFromSearches.size() >= limit) {
-                break;
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            // A sorban állásra legfeljebb egy időkorlátnyit várunk, utána a futás ideje számít
+            if (!task.awaitStart(timeoutNanos)) {
+                throw new TimeoutException();
             }
+            long remainingNanos = timeoutNanos - (System.nanoTime() - task.startedAt());
+            return future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // El nem indult szakasz így már nem fut le; a futót a tranzakció időkorlátja állítja le
+            future.cancel(false);
+            meterRegistry.counter("mediweb.dashboard.section.timeouts", "section", section).increment();
+            log.warn("[DASHBOARD] A(z) {} szakasz nem készült el {} ms alatt, részleges választ adunk", section, timeoutMs);
+        } catch (ExecutionException e) {
+            log.warn("[DASHBOARD] A(z) {} szakasz betöltése sikertelen: {}", section, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
         }
+        unavailable.add(section);
+        return null;
+    }
 
-        return popularFromSearches.size() > limit
-                ? popularFromSearches.subList(0, limit)
-                : popularFromSearches;
+    private <T> T timed(String section, Supplier<T> supplier) {
+        return meterRegistry.timer("mediweb.dashboard.section.duration", "section", section).record(supplier);
+    }
+
+    public List<PopularMedicationDTO> getPopularMedications(int limit) {
+        // Csak az első, hideg betöltés kérdez le; annak lekérdezései is a szakasz időkorlátjával futnak
+        return popularTransaction.execute(status -> popularMedicationsSnapshot.getTop(limit));
     }
 
     private DashboardSummaryDTO buildSummary(User user,
@@ -156,13 +272,17 @@ public class DashboardService {
     }
 
     private DashboardComputationContext collectDailyMedicationData(List<Profile> profiles,
+                                                                   List<ProfileMedication> profileMedications,
                                                                    Map<Long, ProfileMedication> profileMedicationLookup) {
         List<DashboardMedicationDTO> todaysMedications = new ArrayList<>();
         int totalReminders = 0;
         int remindersTaken = 0;
 
+        Map<Long, List<TodaysMedicationDTO>> medicationsByProfile =
+                medicationIntakeService.resolveTodaysMedications(profileMedications);
+
         for (Profile profile : profiles) {
-            List<TodaysMedicationDTO> medications = medicationIntakeService.getMedicationsForToday(profile.getId());
+            List<TodaysMedicationDTO> medications = medicationsByProfile.getOrDefault(profile.getId(), Collections.emptyList());
             for (TodaysMedicationDTO med : medications) {
                 List<String> times = med.getTimes() != null ? med.getTimes() : Collections.emptyList();
                 List<Boolean> takenFlags = med.getTakenFlags() != null ? med.getTakenFlags() : Collections.emptyList();
@@ -260,64 +380,6 @@ public class DashboardService {
                 .build();
     }
 
-    private List<PopularMedicationDTO> getPopularFromSearches(int limit) {
-        List<SearchKeywordProjection> projections = searchRepository.findTopKeywords(PageRequest.of(0, limit));
-        if (projections.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        return projections.stream()
-                .map(item -> mapKeywordToPopularMedication(item.getKeyword(), item.getSearchCount()))
-                .collect(Collectors.toCollection(ArrayList::new));
-    }
-
-    private PopularMedicationDTO mapKeywordToPopularMedication(String keyword, Long count) {
-        Optional<Medication> medicationOptional = medicationRepository.findFirstByNameIgnoreCase(keyword);
-        return medicationOptional
-                .map(medication -> PopularMedicationDTO.builder()
-                        .itemId(medication.getId())
-                        .name(medication.getName())
-                        .searchCount(count)
-                        .shortDescription(medication.getDescription())
-                        .build())
-                .orElseGet(() -> PopularMedicationDTO.builder()
-                        .itemId(null)
-                        .name(keyword)
-                        .searchCount(count)
-                        .shortDescription(null)
-                        .build());
-    }
-
-    private List<PopularMedicationDTO> getPopularFromProfileAssignments(int limit) {
-        if (limit <= 0) {
-            return new ArrayList<>();
-        }
-
-        List<PopularMedicationProjection> projections = profileMedicationRepository.findTopMedications(PageRequest.of(0, limit));
-        if (projections.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        return projections.stream()
-                .map(item -> {
-                    Optional<Medication> medication = medicationRepository.findById(item.getMedicationId());
-                    return medication
-                            .map(med -> PopularMedicationDTO.builder()
-                                    .itemId(med.getId())
-                                    .name(med.getName())
-                                    .searchCount(item.getUsageCount())
-                                    .shortDescription(med.getDescription())
-                                    .build())
-                            .orElseGet(() -> PopularMedicationDTO.builder()
-                                    .itemId(item.getMedicationId())
-                                    .name(item.getName())
-                                    .searchCount(item.getUsageCount())
-                                    .shortDescription(null)
-                                    .build());
-                })
-                .collect(Collectors.toCollection(ArrayList::new));
-    }
-
     private LocalTime parseTimeSafe(String timeValue) {
         try {
             return LocalTime.parse(timeValue, TIME_FORMATTER);
@@ -337,6 +399,45 @@ public class DashboardService {
         return bestDateTime.toLocalTime().format(TIME_FORMATTER);
     }
 
+    /**
+     * Szakaszfeladat, amely rögzíti a tényleges indulás idejét.
+     */
+    private final class SectionTask<T> implements Supplier<T> {
+
+        private final String section;
+        private final Supplier<T> supplier;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile long startedAt;
+
+        private SectionTask(String section, Supplier<T> supplier) {
+            this.section = section;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T get() {
+            startedAt = System.nanoTime();
+            started.countDown();
+            return timed(section, supplier);
+        }
+
+        private String section() {
+            return section;
+        }
+
+        private long startedAt() {
+            return startedAt;
+        }
+
+        private boolean awaitStart(long timeoutNanos) throws InterruptedException {
+            return started.await(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private record PersonalSection(DashboardSummaryDTO summary,
+                                   List<DashboardMedicationDTO> todaysMedications) {
+    }
+
     private record DashboardComputationContext(List<DashboardMedicationDTO> todaysMedications,
                                                int totalReminders,
                                                int remindersTaken) {
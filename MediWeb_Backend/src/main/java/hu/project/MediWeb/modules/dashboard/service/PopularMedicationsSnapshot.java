@@ -0,0 +1,233 @@
+package hu.project.MediWeb.modules.dashboard.service;
+
+import hu.project.MediWeb.modules.dashboard.dto.PopularMedicationDTO;
+import hu.project.MediWeb.modules.medication.entity.Medication;
+import hu.project.MediWeb.modules.medication.repository.MedicationRepository;
+import hu.project.MediWeb.modules.profile.repository.ProfileMedicationRepository;
+import hu.project.MediWeb.modules.profile.repository.projection.PopularMedicationProjection;
+import hu.project.MediWeb.modules.search.service.KeywordPopularityTracker;
+import hu.project.MediWeb.modules.search.service.KeywordPopularityTracker.KeywordCount;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * A népszerű gyógyszerek listája közös, memóriában tartott pillanatképként.
+ * Ütemezetten vagy adott számú új keresés után számoljuk újra, az olvasók
+ * zárolás nélkül a mindenkori referenciát kapják.
+ */
+@Slf4j
+@Component
+public class PopularMedicationsSnapshot {
+
+    /** A kiszolgálható legnagyobb lista; a controller is legfeljebb ennyit enged. */
+    static final int MAX_ITEMS = 20;
+
+    private final KeywordPopularityTracker keywordPopularityTracker;
+    private final ProfileMedicationRepository profileMedicationRepository;
+    private final MedicationRepository medicationRepository;
+    private final int refreshAfterSearches;
+    private final AtomicReference<List<PopularMedicationDTO>> snapshot = new AtomicReference<>();
+    private final AtomicInteger searchesSinceRefresh = new AtomicInteger();
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean(false);
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "popular-medications-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object loadLock = new Object();
+
+    public PopularMedicationsSnapshot(KeywordPopularityTracker keywordPopularityTracker,
+                                      ProfileMedicationRepository profileMedicationRepository,
+                                      MedicationRepository medicationRepository,
+                                      @Value("${dashboard.popular.refresh-after-searches:200}") int refreshAfterSearches) {
+        this.keywordPopularityTracker = keywordPopularityTracker;
+        this.profileMedicationRepository = profileMedicationRepository;
+        this.medicationRepository = medicationRepository;
+        this.refreshAfterSearches = Math.max(refreshAfterSearches, 1);
+    }
+
+    public List<PopularMedicationDTO> getTop(int limit) {
+        List<PopularMedicationDTO> current = currentSnapshot();
+        int size = Math.min(Math.max(limit, 0), current.size());
+        return current.subList(0, size);
+    }
+
+    /**
+     * Új keresés jelzése; a kulcsszó a népszerűségi számlálóba kerül, a küszöb
+     * elérésekor pedig háttérben újraszámolunk.
+     */
+    public void recordSearch(String keyword) {
+        keywordPopularityTracker.record(keyword);
+        if (searchesSinceRefresh.incrementAndGet() >= refreshAfterSearches) {
+            triggerBackgroundRefresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.popular.refresh-interval-ms:300000}",
+            initialDelayString = "${dashboard.popular.refresh-initial-delay-ms:60000}")
+    public void scheduledRefresh() {
+        triggerBackgroundRefresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private List<PopularMedicationDTO> currentSnapshot() {
+        List<PopularMedicationDTO> current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            current = snapshot.get();
+            if (current != null) {
+                return current;
+            }
+            // Első kérés: szinkronban számolunk, a további frissítések már háttérben futnak
+            return refresh();
+        }
+    }
+
+    private void triggerBackgroundRefresh() {
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh();
+                } catch (Exception e) {
+                    log.warn("[DASHBOARD] Népszerű gyógyszerek frissítése sikertelen, a korábbi listát szolgáljuk ki: {}", e.getMessage());
+                } finally {
+                    refreshInProgress.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshInProgress.set(false);
+            log.warn("[DASHBOARD] Népszerű gyógyszerek frissítése nem indítható: {}", e.getMessage());
+        }
+    }
+
+    private List<PopularMedicationDTO> refresh() {
+        searchesSinceRefresh.set(0);
+        List<PopularMedicationDTO> computed = List.copyOf(computePopularMedications(MAX_ITEMS));
+        snapshot.set(computed);
+        log.debug("[DASHBOARD] Népszerű gyógyszerek frissítve ({} elem)", computed.size());
+        return computed;
+    }
+
+    private List<PopularMedicationDTO> computePopularMedications(int limit) {
+        List<PopularMedicationDTO> popularFromSearches = getPopularFromSearches(limit);
+
+        if (popularFromSearches.size() >= limit) {
+            return popularFromSearches;
+        }
+
+        int remaining = limit - popularFromSearches.size();
+        List<PopularMedicationDTO> fallback = getPopularFromProfileAssignments(remaining);
+
+        if (fallback.isEmpty()) {
+            return popularFromSearches;
+        }
+
+        Set<Long> alreadyIncludedIds = popularFromSearches.stream()
+                .map(PopularMedicationDTO::getItemId)
+                .filter(id -> id != null && id > 0)
+                .collect(Collectors.toSet());
+
+        Set<String> alreadyIncludedNames = popularFromSearches.stream()
+                .map(PopularMedicationDTO::getName)
+                .filter(name -> name != null && !name.isBlank())
+                .map(String::toLowerCase)
+                .collect(Collectors.toSet());
+
+        for (PopularMedicationDTO item : fallback) {
+            boolean knownId = item.getItemId() != null && alreadyIncludedIds.contains(item.getItemId());
+            boolean knownName = item.getName() != null && alreadyIncludedNames.contains(item.getName().toLowerCase());
+            if (!knownId && !knownName) {
+                popularFromSearches.add(item);
+            }
+            if (popularFromSearches.size() >= limit) {
+                break;
+            }
+        }
+
+        return popularFromSearches.size() > limit
+                ? popularFromSearches.subList(0, limit)
+                : popularFromSearches;
+    }
+
+    private List<PopularMedicationDTO> getPopularFromSearches(int limit) {
+        List<KeywordCount> keywords = keywordPopularityTracker.topKeywords(limit);
+        if (keywords.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return keywords.stream()
+                .map(item -> mapKeywordToPopularMedication(item.keyword(), item.count()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private PopularMedicationDTO mapKeywordToPopularMedication(String keyword, Long count) {
+        Optional<Medication> medicationOptional = medicationRepository.findFirstByNameIgnoreCase(keyword);
+        return medicationOptional
+                .map(medication -> PopularMedicationDTO.builder()
+                        .itemId(medication.getId())
+                        .name(medication.getName())
+                        .searchCount(count)
+                        .shortDescription(medication.getDescription())
+                        .build())
+                .orElseGet(() -> PopularMedicationDTO.builder()
+                        .itemId(null)
+                        .name(keyword)
+                        .searchCount(count)
+                        .shortDescription(null)
+                        .build());
+    }
+
+    private List<PopularMedicationDTO> getPopularFromProfileAssignments(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<PopularMedicationProjection> projections = profileMedicationRepository.findTopMedications(PageRequest.of(0, limit));
+        if (projections.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return projections.stream()
+                .map(item -> {
+                    Optional<Medication> medication = medicationRepository.findById(item.getMedicationId());
+                    return medication
+                            .map(med -> PopularMedicationDTO.builder()
+                                    .itemId(med.getId())
+                                    .name(med.getName())
+                                    .searchCount(item.getUsageCount())
+                                    .shortDescription(med.getDescription())
+                                    .build())
+                            .orElseGet(() -> PopularMedicationDTO.builder()
+                                    .itemId(item.getMedicationId())
+                                    .name(item.getName())
+                                    .searchCount(item.getUsageCount())
+                                    .shortDescription(null)
+                                    .build());
+                })
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -45,16 +45,7 @@ public class FavoriteController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        Long currentUserId = currentUser.getId();
-        List<FavoriteDTO> favorites = favoriteService.findByUserId(currentUserId).stream()
-                .map(fav -> FavoriteDTO.builder()
-                        .id(fav.getId())
-                        .userId(currentUserId)
-                        .medicationId(fav.getMedication().getId())
-                        .medicationName(fav.getMedication().getName())
-                        .build())
-                .toList();
-        return ResponseEntity.ok(favorites);
+        return ResponseEntity.ok(favoriteService.findSummariesByUserId(currentUser.getId()));
     }
 
     @PostMapping("/{medicationId}")
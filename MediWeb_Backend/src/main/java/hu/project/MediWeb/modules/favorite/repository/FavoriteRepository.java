@@ -1,9 +1,12 @@
 package hu.project.MediWeb.modules.favorite.repository;
 
+import hu.project.MediWeb.modules.favorite.dto.FavoriteDTO;
 import hu.project.MediWeb.modules.favorite.entity.Favorite;
 import hu.project.MediWeb.modules.medication.entity.Medication;
 import hu.project.MediWeb.modules.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,6 +15,22 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
 
     List<Favorite> findByUserId(Long userId);
 
+    /**
+     * A felhasználó kedvencei a gyógyszer adataival együtt, egyetlen lekérdezéssel.
+     */
+    @Query("SELECT new hu.project.MediWeb.modules.favorite.dto.FavoriteDTO(f.id, f.user.id, m.id, m.name) " +
+            "FROM Favorite f JOIN f.medication m WHERE f.user.id = :userId ORDER BY f.id")
+    List<FavoriteDTO> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT f.medication.id FROM Favorite f WHERE f.user.id = :userId")
+    List<Long> findMedicationIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT f FROM Favorite f JOIN FETCH f.medication WHERE f.user.id = :userId AND f.medication.id = :medicationId")
+    Optional<Favorite> findByUserIdAndMedicationId(@Param("userId") Long userId, @Param("medicationId") Long medicationId);
+
+    @Query("SELECT f.user.id FROM Favorite f WHERE f.id = :id")
+    Optional<Long> findUserIdById(@Param("id") Long id);
+
     boolean existsByUserAndMedication(User user, Medication medication);
 
     Optional<Favorite> findByUserAndMedication(User user, Medication medication);
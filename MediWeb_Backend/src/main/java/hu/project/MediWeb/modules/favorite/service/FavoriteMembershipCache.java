@@ -0,0 +1,78 @@
+package hu.project.MediWeb.modules.favorite.service;
+
+import hu.project.MediWeb.cache.AfterCommit;
+import hu.project.MediWeb.cache.LruTtlCache;
+import hu.project.MediWeb.modules.favorite.repository.FavoriteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Felhasználónként a kedvenc gyógyszerek azonosítói rendezett long tömbként, hogy
+ * a katalógus listázásakor a "kedvenc-e?" kérdés bináris kereséssel, lekérdezés
+ * nélkül megválaszolható legyen. Kedvenc felvétele vagy törlése a bejegyzést
+ * azonnal és a tranzakció lezárulta után is törli.
+ */
+@Component
+public class FavoriteMembershipCache {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final FavoriteRepository favoriteRepository;
+    private final LruTtlCache<Long, long[]> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public FavoriteMembershipCache(FavoriteRepository favoriteRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${cache.favorites.max-entries:5000}") int maxEntries,
+                                   @Value("${cache.favorites.ttl-minutes:30}") long ttlMinutes) {
+        this.favoriteRepository = favoriteRepository;
+        this.entries = new LruTtlCache<>(maxEntries, Duration.ofMinutes(Math.max(ttlMinutes, 0)),
+                meterRegistry, "mediweb.favorite.cache");
+    }
+
+    /**
+     * A felhasználó kedvenc gyógyszereinek rendezett azonosítói; a visszaadott tömböt nem szabad módosítani.
+     */
+    public long[] medicationIds(Long userId) {
+        if (userId == null) {
+            return EMPTY;
+        }
+        long[] cached = entries.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = invalidations.get();
+        long[] ids = favoriteRepository.findMedicationIdsByUserId(userId).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+        // Betöltés közbeni módosításnál az elavult listát nem tároljuk el
+        entries.putIf(userId, ids, () -> invalidations.get() == generation);
+        return ids;
+    }
+
+    public boolean contains(Long userId, Long medicationId) {
+        return medicationId != null && Arrays.binarySearch(medicationIds(userId), medicationId) >= 0;
+    }
+
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.runNowAndAfterCommit(() -> {
+            invalidations.incrementAndGet();
+            entries.remove(userId);
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
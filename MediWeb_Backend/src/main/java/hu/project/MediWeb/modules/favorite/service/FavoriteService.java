@@ -1,5 +1,6 @@
 package hu.project.MediWeb.modules.favorite.service;
 
+import hu.project.MediWeb.modules.favorite.dto.FavoriteDTO;
 import hu.project.MediWeb.modules.favorite.entity.Favorite;
 import hu.project.MediWeb.modules.favorite.repository.FavoriteRepository;
 import hu.project.MediWeb.modules.medication.entity.Medication;
@@ -10,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -17,32 +19,45 @@ public class FavoriteService {
 
     private final FavoriteRepository favoriteRepository;
     private final MedicationRepository medicationRepository;
+    private final FavoriteMembershipCache favoriteMembershipCache;
 
     @Transactional
     public List<Favorite> findByUserId(Long userId) {
         return favoriteRepository.findByUserId(userId);
     }
 
+    @Transactional
+    public List<FavoriteDTO> findSummariesByUserId(Long userId) {
+        return favoriteRepository.findSummariesByUserId(userId);
+    }
+
+    public long[] findFavoriteMedicationIds(Long userId) {
+        return favoriteMembershipCache.medicationIds(userId);
+    }
+
     @Transactional
     public Favorite addFavorite(User user, Long medicationItemId) {
+        // Már meglévő kedvencnél egyetlen lekérdezés elég
+        Optional<Favorite> existing = favoriteRepository.findByUserIdAndMedicationId(user.getId(), medicationItemId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
         Medication medication = medicationRepository.findById(medicationItemId)
                 .orElseThrow(() -> new IllegalArgumentException("Gyógyszer nem található az itemId alapján: " + medicationItemId));
-
-        return favoriteRepository.findByUserAndMedication(user, medication)
-                .orElseGet(() -> {
-                    Favorite favorite = Favorite.builder()
-                            .user(user)
-                            .medication(medication)
-                            .build();
-                    return favoriteRepository.save(favorite);
-                });
+        Favorite favorite = favoriteRepository.save(Favorite.builder()
+                .user(user)
+                .medication(medication)
+                .build());
+        favoriteMembershipCache.evict(user.getId());
+        return favorite;
     }
 
     @Transactional
     public void deleteById(Long id) {
-        if (!favoriteRepository.existsById(id)) {
-            throw new IllegalArgumentException("Nem létezik ilyen favorite ID: " + id);
-        }
+        Long userId = favoriteRepository.findUserIdById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Nem létezik ilyen favorite ID: " + id));
         favoriteRepository.deleteById(id);
+        favoriteMembershipCache.evict(userId);
     }
 }
\ No newline at end of file
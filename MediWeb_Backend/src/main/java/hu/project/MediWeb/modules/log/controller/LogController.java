@@ -1,41 +1,38 @@
 package hu.project.MediWeb.modules.log.controller;
 
 import hu.project.MediWeb.modules.log.dto.LogRequest;
-import lombok.extern.slf4j.Slf4j;
+import hu.project.MediWeb.modules.log.service.ClientLogIngestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/logs")
-@Slf4j
+@RequiredArgsConstructor
 public class LogController {
 
+    private final ClientLogIngestionService clientLogIngestionService;
+
+    @Value("${client-logs.max-batch-entries:100}")
+    private int maxBatchEntries;
+
     @PostMapping
     public ResponseEntity<Void> receiveLog(@RequestBody LogRequest logRequest) {
-        String baseMessage = "📱 [CLIENT LOG]";
-        String level = logRequest.getLevel() != null ? logRequest.getLevel().toUpperCase() : "INFO";
-        String message = logRequest.getMessage() != null ? logRequest.getMessage() : "No message provided";
-        String deviceInfo = logRequest.getDeviceInfo() != null ? logRequest.getDeviceInfo() : "Unknown device";
-
-        switch (level) {
-            case "ERROR":
-            case "FATAL":
-                log.error("{} [ERROR] {} | Device: {}", baseMessage, message, deviceInfo);
-                if (logRequest.getStackTrace() != null) {
-                    log.error("{} StackTrace: \n{}", baseMessage, logRequest.getStackTrace());
-                }
-                break;
-            case "WARN":
-                log.warn("{} [WARN] {} | Device: {}", baseMessage, message, deviceInfo);
-                break;
-            default:
-                log.info("{} [INFO] {} | Device: {}", baseMessage, message, deviceInfo);
-        }
+        clientLogIngestionService.submit(logRequest);
+        return ResponseEntity.ok().build();
+    }
 
-        if (logRequest.getAdditionalInfo() != null) {
-            log.debug("{} Additional Info: {}", baseMessage, logRequest.getAdditionalInfo());
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Integer>> receiveLogs(@RequestBody List<LogRequest> logRequests) {
+        if (logRequests.size() > maxBatchEntries) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         }
-
-        return ResponseEntity.ok().build();
+        int accepted = clientLogIngestionService.submit(logRequests);
+        return ResponseEntity.accepted().body(Map.of("received", logRequests.size(), "accepted", accepted));
     }
 }
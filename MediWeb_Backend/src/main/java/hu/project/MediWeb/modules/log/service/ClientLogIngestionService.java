@@ -0,0 +1,245 @@
+package hu.project.MediWeb.modules.log.service;
+
+import hu.project.MediWeb.modules.log.dto.LogRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A kliensektől érkező naplóbejegyzések aszinkron feldolgozása. A kérés szála
+ * csak egy korlátos sorba teszi a bejegyzést, a kiírást egyetlen háttérszál végzi
+ * kötegekben. Az azonos hibák (üzenet és stack trace) ablakonként csak néhányszor
+ * kerülnek ki teljes egészében, a többit összesítve jelezzük; telített sornál a
+ * bejegyzés eldobódik és a számláló nő. Az ablak végén a teljes ujjlenyomat-táblát
+ * egyben cseréljük, az összesítés a következő kiírási körben a régiről készül.
+ */
+@Slf4j
+@Service
+public class ClientLogIngestionService {
+
+    private static final String BASE_MESSAGE = "📱 [CLIENT LOG]";
+    private static final int MAX_TRACKED_FINGERPRINTS = 10_000;
+
+    private final BlockingQueue<LogRequest> buffer;
+    private final int batchSize;
+    private final int maxDuplicatesPerWindow;
+    private final int maxFieldLength;
+    private final long windowMillis;
+    private final AtomicReference<DedupWindow> window = new AtomicReference<>(new DedupWindow());
+    // Csak a kiíró szál használja: a lecserélt, még összesítésre váró ablak
+    private DedupWindow retiredWindow;
+    private final Counter acceptedCounter;
+    private final Counter droppedCounter;
+    private final Counter suppressedCounter;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "client-log-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ClientLogIngestionService(MeterRegistry meterRegistry,
+                                     @Value("${client-logs.buffer-capacity:2000}") int bufferCapacity,
+                                     @Value("${client-logs.batch-size:200}") int batchSize,
+                                     @Value("${client-logs.flush-interval-ms:500}") long flushIntervalMs,
+                                     @Value("${client-logs.dedup.window-seconds:60}") long dedupWindowSeconds,
+                                     @Value("${client-logs.dedup.max-per-window:5}") int maxDuplicatesPerWindow,
+                                     @Value("${client-logs.max-field-length:8000}") int maxFieldLength) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(bufferCapacity, 1));
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxDuplicatesPerWindow = Math.max(maxDuplicatesPerWindow, 1);
+        this.maxFieldLength = Math.max(maxFieldLength, 100);
+        this.windowMillis = TimeUnit.SECONDS.toMillis(Math.max(dedupWindowSeconds, 1));
+        this.acceptedCounter = Counter.builder("mediweb.client.logs").tag("result", "accepted").register(meterRegistry);
+        this.droppedCounter = Counter.builder("mediweb.client.logs").tag("result", "dropped").register(meterRegistry);
+        this.suppressedCounter = Counter.builder("mediweb.client.logs").tag("result", "suppressed").register(meterRegistry);
+        Gauge.builder("mediweb.client.logs.queue.size", buffer, Collection::size).register(meterRegistry);
+
+        long interval = Math.max(flushIntervalMs, 50);
+        writer.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Bejegyzések sorba állítása; a visszatérési érték az elfogadottak száma
+     * (az eldobott és az elnyomott ismétlődő bejegyzések nélkül).
+     */
+    public int submit(List<LogRequest> entries) {
+        int accepted = 0;
+        for (LogRequest entry : entries) {
+            if (entry != null && submit(entry)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    public boolean submit(LogRequest entry) {
+        if (isSuppressedDuplicate(entry)) {
+            suppressedCounter.increment();
+            return false;
+        }
+        if (!buffer.offer(entry)) {
+            droppedCounter.increment();
+            return false;
+        }
+        acceptedCounter.increment();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A leállás előtt még bent lévő bejegyzéseket kiírjuk
+        flush();
+        if (retiredWindow != null) {
+            reportSuppressedDuplicates(retiredWindow);
+        }
+        reportSuppressedDuplicates(window.get());
+    }
+
+    private boolean isSuppressedDuplicate(LogRequest entry) {
+        if (entry.getStackTrace() == null || entry.getStackTrace().isBlank()) {
+            return false;
+        }
+        return window.get().increment(fingerprint(entry), entry) > maxDuplicatesPerWindow;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("{} Kliensnaplók kiírása sikertelen: {}", BASE_MESSAGE, e.getMessage());
+        }
+    }
+
+    private void flush() {
+        List<LogRequest> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            batch.forEach(this::write);
+            batch.clear();
+        }
+        // Az előző körben lecserélt ablakot már egyetlen kérés sem növeli, így pontos az összesítés
+        if (retiredWindow != null) {
+            reportSuppressedDuplicates(retiredWindow);
+            retiredWindow = null;
+        }
+        if (System.currentTimeMillis() - window.get().startedAt() >= windowMillis) {
+            retiredWindow = window.getAndSet(new DedupWindow());
+        }
+    }
+
+    private void reportSuppressedDuplicates(DedupWindow expired) {
+        for (Fingerprint fingerprint : expired.fingerprints()) {
+            int suppressed = fingerprint.count().get() - maxDuplicatesPerWindow;
+            if (suppressed > 0) {
+                log.error("{} [ERROR] {} | további {} azonos hiba elnyomva", BASE_MESSAGE, fingerprint.message(), suppressed);
+            }
+        }
+    }
+
+    private void write(LogRequest logRequest) {
+        String level = logRequest.getLevel() != null ? logRequest.getLevel().toUpperCase() : "INFO";
+        String message = logRequest.getMessage() != null ? truncate(logRequest.getMessage()) : "No message provided";
+        String deviceInfo = logRequest.getDeviceInfo() != null ? truncate(logRequest.getDeviceInfo()) : "Unknown device";
+
+        switch (level) {
+            case "ERROR":
+            case "FATAL":
+                log.error("{} [ERROR] {} | Device: {}", BASE_MESSAGE, message, deviceInfo);
+                if (logRequest.getStackTrace() != null) {
+                    log.error("{} StackTrace: \n{}", BASE_MESSAGE, truncate(logRequest.getStackTrace()));
+                }
+                break;
+            case "WARN":
+                log.warn("{} [WARN] {} | Device: {}", BASE_MESSAGE, message, deviceInfo);
+                break;
+            default:
+                log.info("{} [INFO] {} | Device: {}", BASE_MESSAGE, message, deviceInfo);
+        }
+
+        if (logRequest.getAdditionalInfo() != null) {
+            log.debug("{} Additional Info: {}", BASE_MESSAGE, truncate(logRequest.getAdditionalInfo()));
+        }
+    }
+
+    private static String fingerprint(LogRequest entry) {
+        String message = entry.getMessage() != null ? entry.getMessage() : "";
+        String stackTrace = entry.getStackTrace();
+        return message.hashCode() + ":" + stackTrace.hashCode() + ":" + stackTrace.length();
+    }
+
+    private String truncate(String value) {
+        if (value == null || value.length() <= maxFieldLength) {
+            return value;
+        }
+        return value.substring(0, maxFieldLength) + "… (csonkolva)";
+    }
+
+    /**
+     * Egy deduplikációs ablak ujjlenyomatai. Telítettségnél a legrégebben látott
+     * ujjlenyomat kerül ki, a számlálója az összesítésbe így is bekerül.
+     */
+    private final class DedupWindow {
+
+        private final long startedAt = System.currentTimeMillis();
+        private final Queue<Fingerprint> evicted = new ConcurrentLinkedQueue<>();
+        private final Map<String, Fingerprint> fingerprints = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Fingerprint> eldest) {
+                if (size() > MAX_TRACKED_FINGERPRINTS) {
+                    evicted.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        private int increment(String key, LogRequest entry) {
+            Fingerprint fingerprint;
+            synchronized (fingerprints) {
+                fingerprint = fingerprints.computeIfAbsent(key,
+                        ignored -> new Fingerprint(truncate(entry.getMessage()), new AtomicInteger()));
+            }
+            return fingerprint.count().incrementAndGet();
+        }
+
+        private long startedAt() {
+            return startedAt;
+        }
+
+        private List<Fingerprint> fingerprints() {
+            List<Fingerprint> all;
+            synchronized (fingerprints) {
+                all = new ArrayList<>(fingerprints.values());
+            }
+            all.addAll(evicted);
+            return all;
+        }
+    }
+
+    private record Fingerprint(String message, AtomicInteger count) {
+    }
+}
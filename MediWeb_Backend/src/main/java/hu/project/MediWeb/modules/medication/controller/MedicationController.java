@@ -1,5 +1,6 @@
 package hu.project.MediWeb.modules.medication.controller;
 
+import hu.project.MediWeb.modules.dashboard.service.PopularMedicationsSnapshot;
 import hu.project.MediWeb.modules.medication.dto.MedicationDetailsResponse;
 import hu.project.MediWeb.modules.medication.dto.MedicationListItemResponse;
 import hu.project.MediWeb.modules.medication.dto.MedicationSearchCriteria;
@@ -8,14 +9,22 @@ import hu.project.MediWeb.modules.medication.service.MedicationService;
 import hu.project.MediWeb.modules.medication.sync.MedicationBatchProcessor;
 import hu.project.MediWeb.modules.medication.sync.MedicationSyncStatus;
 import hu.project.MediWeb.modules.medication.sync.MedicationSyncStatusTracker;
+import hu.project.MediWeb.modules.user.entity.User;
+import hu.project.MediWeb.modules.user.service.UserService;
+import hu.project.MediWeb.security.RateLimitExceededException;
+import hu.project.MediWeb.security.RateLimiterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -34,6 +43,9 @@ public class MedicationController {
     private final MedicationCatalogService medicationCatalogService;
     private final MedicationSyncStatusTracker medicationSyncStatusTracker;
     private final MedicationBatchProcessor medicationBatchProcessor;
+    private final PopularMedicationsSnapshot popularMedicationsSnapshot;
+    private final UserService userService;
+    private final RateLimiterRegistry rateLimiterRegistry;
 
     @GetMapping("/search")
     public ResponseEntity<Page<MedicationListItemResponse>> searchMedications(
@@ -66,10 +78,26 @@ public class MedicationController {
                 authorisationDateFrom, authorisationDateTo,
                 revokeDateFrom, revokeDateTo);
         Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 100));
-        Page<MedicationListItemResponse> response = medicationCatalogService.search(criteria, pageable);
+        Page<MedicationListItemResponse> response = medicationCatalogService.search(criteria, pageable, currentUserId());
+        // Csak az első oldal számít új keresésnek, a lapozás nem
+        if (page <= 0 && query != null && !query.isBlank()) {
+            popularMedicationsSnapshot.recordSearch(query);
+        }
         return ResponseEntity.ok(response);
     }
 
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        // A JWT szűrő által már betöltött felhasználó, nem jár újabb lekérdezéssel
+        return userService.findUserByEmail(authentication.getName())
+                .map(User::getId)
+                .orElse(null);
+    }
+
     private LocalDate parseDate(String dateStr) {
         if (dateStr == null || dateStr.isBlank())
             return null;
@@ -186,9 +214,18 @@ public class MedicationController {
     public ResponseEntity<?> getDetails(@PathVariable Long itemId) {
         try {
             log.debug("[MEDICATION] Starting getMedicationDetails for ID: {}", itemId);
-            MedicationDetailsResponse response = medicationService.getMedicationDetails(itemId);
+            // Csak a tényleges OGYÉI lekérés terheli a kliens keretét, a gyorsítótár-találat nem
+            MedicationDetailsResponse response = medicationService.getMedicationDetails(itemId,
+                    () -> rateLimiterRegistry.acquireForCurrentRequest(RateLimiterRegistry.MEDICATION_DETAILS));
             log.debug("[MEDICATION] Successfully retrieved details for ID: {}", itemId);
             return ResponseEntity.ok(response);
+        } catch (RateLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of(
+                            "error", "Too Many Requests",
+                            "message", e.getMessage(),
+                            "itemId", itemId));
         } catch (RuntimeException e) {
             log.error("[MEDICATION] Error getting details for ID: {}", itemId);
             log.error("[MEDICATION] Error type: {}", e.getClass().getSimpleName());
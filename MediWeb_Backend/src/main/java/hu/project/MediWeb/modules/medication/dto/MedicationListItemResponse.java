@@ -15,6 +15,9 @@ public record MedicationListItemResponse(
         boolean glutenFree,
         boolean benzoateFree,
         boolean narcotic,
-        boolean active
+        boolean active,
+        Double averageRating,
+        long reviewCount,
+        boolean favorite
 ) {
 }
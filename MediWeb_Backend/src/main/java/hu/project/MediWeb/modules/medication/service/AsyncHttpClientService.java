@@ -96,6 +96,21 @@ public class AsyncHttpClientService {
         });
     }
 
+    /**
+     * Nem blokkoló HEAD kérés a közös klienssel (átirányítások követésével), a
+     * törzs nélkül. Az OGYÉI-re vonatkozó szemafor és visszafogás itt nem érvényes,
+     * a párhuzamosságot a hívó korlátozza.
+     */
+    public CompletableFuture<HttpResponse<Void>> headAsync(String url, Duration timeout, String userAgent) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(timeout)
+                .header("User-Agent", userAgent)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+    }
+
     public CompletableFuture<String> fetchWithRetry(String url, int maxRetries) {
         return fetchWithRetryInternal(url, maxRetries, 0);
     }
@@ -0,0 +1,305 @@
+package hu.project.MediWeb.modules.medication.service;
+
+import hu.project.MediWeb.modules.medication.repository.MedicationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A gyógyszerképek URL-jeinek ellenőrzése nem blokkoló HEAD kérésekkel a közös
+ * HTTP klienssel, hosztonként korlátozott párhuzamossággal. Az eredményt URL-enként
+ * az "image_url_validation" táblában tároljuk, így egy futás csak az új vagy
+ * elavult bejegyzéseket ellenőrzi újra. A gyógyszereket azonosító szerint,
+ * rögzített méretű kötegekben olvassuk, és a hibás URL-eket kötegenként töröljük.
+ */
+@Slf4j
+@Service
+public class ImageUrlValidator {
+
+    private static final String USER_AGENT = "MediWeb/1.0 image-validator";
+    private static final long MIN_IMAGE_BYTES = 2048;
+    private static final int NETWORK_ERROR = -1;
+
+    private static final String CANDIDATE_FILTER =
+            "FROM medications m LEFT JOIN image_url_validation v ON v.url_hash = md5(m.image_url) " +
+            "WHERE m.is_active = TRUE AND m.image_url IS NOT NULL AND m.image_url <> '' " +
+            "AND (v.url_hash IS NULL OR v.valid = FALSE OR v.validated_at < ?)";
+
+    private final AsyncHttpClientService asyncHttpClient;
+    private final MedicationRepository medicationRepository;
+    private final MedicationDetailsCache medicationDetailsCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HostThrottle hostThrottle;
+    private final int batchSize;
+    private final Duration timeout;
+    private final long revalidateDays;
+    private final Counter validCounter;
+    private final Counter brokenCounter;
+
+    public ImageUrlValidator(AsyncHttpClientService asyncHttpClient,
+                             MedicationRepository medicationRepository,
+                             MedicationDetailsCache medicationDetailsCache,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${medication.image.validation.batch-size:500}") int batchSize,
+                             @Value("${medication.image.validation.per-host-concurrency:8}") int perHostConcurrency,
+                             @Value("${medication.image.validation.timeout-seconds:5}") long timeoutSeconds,
+                             @Value("${medication.image.validation.revalidate-days:7}") long revalidateDays) {
+        this.asyncHttpClient = asyncHttpClient;
+        this.medicationRepository = medicationRepository;
+        this.medicationDetailsCache = medicationDetailsCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hostThrottle = new HostThrottle(Math.max(perHostConcurrency, 1));
+        this.batchSize = Math.max(batchSize, 10);
+        this.timeout = Duration.ofSeconds(Math.max(timeoutSeconds, 1));
+        this.revalidateDays = Math.max(revalidateDays, 1);
+        this.validCounter = Counter.builder("mediweb.image.validation").tag("result", "valid").register(meterRegistry);
+        this.brokenCounter = Counter.builder("mediweb.image.validation").tag("result", "broken").register(meterRegistry);
+    }
+
+    /**
+     * Az elavult vagy még nem ellenőrzött kép URL-ek ellenőrzése és a hibásak törlése.
+     *
+     * @param progressCallback opcionális, int[]{ellenőrzött, összes, eddig hibás} értéket kap
+     * @return a törölt (hibás) kép URL-ek száma
+     */
+    public int validateStaleImageUrls(Consumer<int[]> progressCallback) {
+        Timestamp staleBefore = Timestamp.valueOf(LocalDateTime.now().minusDays(revalidateDays));
+        Integer candidates = jdbcTemplate.queryForObject("SELECT COUNT(*) " + CANDIDATE_FILTER, Integer.class, staleBefore);
+        int total = candidates != null ? candidates : 0;
+        if (progressCallback != null) {
+            progressCallback.accept(new int[]{0, total, 0});
+        }
+        if (total == 0) {
+            log.info("[IMAGE-CLEANUP] Nincs ellenőrizendő kép URL");
+            return 0;
+        }
+        log.info("[IMAGE-CLEANUP] {} kép URL ellenőrzése {} darabos kötegekben...", total, batchSize);
+
+        long lastId = 0;
+        int checked = 0;
+        int broken = 0;
+        while (true) {
+            List<Candidate> batch = jdbcTemplate.query(
+                    "SELECT m.id, m.image_url, (v.valid = FALSE AND v.validated_at >= ?) AS known_broken " +
+                    CANDIDATE_FILTER + " AND m.id > ? ORDER BY m.id LIMIT ?",
+                    (rs, rowNum) -> new Candidate(rs.getLong(1), rs.getString(2), rs.getBoolean(3)),
+                    staleBefore, staleBefore, lastId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).id();
+
+            broken += processBatch(batch);
+            checked += batch.size();
+            if (progressCallback != null) {
+                progressCallback.accept(new int[]{Math.min(checked, total), total, broken});
+            }
+            log.info("[IMAGE-CLEANUP] {}/{} kép URL ellenőrizve (hibás: {})", checked, total, broken);
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        // Már egyetlen gyógyszerhez sem tartozó, régi eredmények takarítása
+        jdbcTemplate.update("DELETE FROM image_url_validation WHERE validated_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(revalidateDays * 4)));
+        log.info("[IMAGE-CLEANUP] Ellenőrzés kész: {} URL, ebből {} hibás törölve", checked, broken);
+        return broken;
+    }
+
+    private int processBatch(List<Candidate> batch) {
+        // Azonos URL-t (pl. közös alapértelmezett kép) kötegenként csak egyszer kérdezünk le
+        Map<String, List<Long>> idsByUrl = new LinkedHashMap<>();
+        List<Long> brokenIds = new ArrayList<>();
+        for (Candidate candidate : batch) {
+            if (candidate.knownBroken()) {
+                brokenIds.add(candidate.id());
+            } else {
+                idsByUrl.computeIfAbsent(candidate.url(), url -> new ArrayList<>()).add(candidate.id());
+            }
+        }
+
+        Map<String, Result> results = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] checks = idsByUrl.keySet().stream()
+                .map(url -> check(url).thenAccept(result -> results.put(url, result)))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(checks).join();
+
+        List<Object[]> rows = new ArrayList<>(results.size());
+        Timestamp validatedAt = Timestamp.valueOf(LocalDateTime.now());
+        results.forEach((url, result) -> {
+            rows.add(new Object[]{url, url, result.valid(), result.statusCode(), validatedAt});
+            if (result.valid()) {
+                validCounter.increment();
+            } else {
+                brokenCounter.increment();
+                brokenIds.addAll(idsByUrl.get(url));
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO image_url_validation (url_hash, url, valid, status_code, validated_at) " +
+                        "VALUES (md5(?), ?, ?, ?, ?) " +
+                        "ON CONFLICT (url_hash) DO UPDATE SET url = EXCLUDED.url, valid = EXCLUDED.valid, " +
+                        "status_code = EXCLUDED.status_code, validated_at = EXCLUDED.validated_at", rows);
+            }
+            if (!brokenIds.isEmpty()) {
+                medicationRepository.clearImageUrls(brokenIds);
+            }
+        });
+        if (!brokenIds.isEmpty()) {
+            medicationDetailsCache.evictAll(brokenIds);
+        }
+        return brokenIds.size();
+    }
+
+    private CompletableFuture<Result> check(String url) {
+        String lowerUrl = url.toLowerCase(Locale.ROOT);
+        if (lowerUrl.contains("no-image") || lowerUrl.contains("placeholder")
+                || lowerUrl.contains("default-pill") || lowerUrl.contains("generic-med")) {
+            log.debug("[IMAGE-VALIDATION] Helykitöltő jellegű URL elutasítva: {}", url);
+            return CompletableFuture.completedFuture(new Result(false, null));
+        }
+
+        String host;
+        try {
+            host = URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new Result(false, null));
+        }
+        if (host == null) {
+            return CompletableFuture.completedFuture(new Result(false, null));
+        }
+
+        return hostThrottle.submit(host.toLowerCase(Locale.ROOT),
+                        () -> asyncHttpClient.headAsync(url, timeout, USER_AGENT))
+                .thenApply(response -> evaluate(url, response))
+                .exceptionally(e -> new Result(false, NETWORK_ERROR));
+    }
+
+    private static Result evaluate(String url, HttpResponse<Void> response) {
+        int code = response.statusCode();
+        if (code < 200 || code >= 400) {
+            return new Result(false, code);
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        if (contentType != null && !contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+            log.debug("[IMAGE-VALIDATION] Nem kép Content-Type ({}): {}", contentType, url);
+            return new Result(false, code);
+        }
+        // A nagyon kicsi képek jellemzően ikonok vagy helykitöltők
+        long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (contentLength > 0 && contentLength < MIN_IMAGE_BYTES) {
+            log.debug("[IMAGE-VALIDATION] Túl kicsi kép ({} bájt): {}", contentLength, url);
+            return new Result(false, code);
+        }
+        return new Result(true, code);
+    }
+
+    private record Candidate(long id, String url, boolean knownBroken) {
+    }
+
+    private record Result(boolean valid, Integer statusCode) {
+    }
+
+    /**
+     * Hosztonként legfeljebb adott számú folyamatban lévő kérés; a többi sorban vár,
+     * és egy kérés befejezésekor indul. Szálat nem foglal a várakozás.
+     */
+    private static final class HostThrottle {
+
+        private final int maxPerHost;
+        private final Map<String, HostSlot> hosts = new HashMap<>();
+
+        private HostThrottle(int maxPerHost) {
+            this.maxPerHost = maxPerHost;
+        }
+
+        private <T> CompletableFuture<T> submit(String host, Supplier<CompletableFuture<T>> task) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable start = () -> {
+                CompletableFuture<T> future;
+                try {
+                    future = task.get();
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((value, error) -> {
+                    release(host);
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            };
+
+            boolean runNow;
+            synchronized (hosts) {
+                HostSlot slot = hosts.computeIfAbsent(host, key -> new HostSlot());
+                runNow = slot.active < maxPerHost;
+                if (runNow) {
+                    slot.active++;
+                } else {
+                    slot.waiting.add(start);
+                }
+            }
+            if (runNow) {
+                start.run();
+            }
+            return result;
+        }
+
+        private void release(String host) {
+            Runnable next;
+            synchronized (hosts) {
+                HostSlot slot = hosts.get(host);
+                if (slot == null) {
+                    return;
+                }
+                // A felszabaduló helyet közvetlenül a következő várakozó kapja
+                next = slot.waiting.poll();
+                if (next == null && --slot.active == 0) {
+                    hosts.remove(host);
+                }
+            }
+            if (next != null) {
+                next.run();
+            }
+        }
+    }
+
+    private static final class HostSlot {
+        private int active;
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+    }
+}
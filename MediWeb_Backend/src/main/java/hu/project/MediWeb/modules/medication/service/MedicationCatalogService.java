@@ -1,9 +1,12 @@
 package hu.project.MediWeb.modules.medication.service;
 
+import hu.project.MediWeb.modules.favorite.service.FavoriteMembershipCache;
 import hu.project.MediWeb.modules.medication.dto.MedicationListItemResponse;
 import hu.project.MediWeb.modules.medication.dto.MedicationSearchCriteria;
 import hu.project.MediWeb.modules.medication.entity.Medication;
 import hu.project.MediWeb.modules.medication.repository.MedicationRepository;
+import hu.project.MediWeb.modules.review.entity.MedicationRatingAggregate;
+import hu.project.MediWeb.modules.review.service.ReviewRatingAggregator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -14,8 +17,10 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 
@@ -24,12 +29,30 @@ import java.util.function.Function;
 public class MedicationCatalogService {
 
     private final MedicationRepository medicationRepository;
+    private final ReviewRatingAggregator reviewRatingAggregator;
+    private final FavoriteMembershipCache favoriteMembershipCache;
 
     public Page<MedicationListItemResponse> search(MedicationSearchCriteria criteria, Pageable pageable) {
+        return search(criteria, pageable, null);
+    }
+
+    /**
+     * Keresés a bejelentkezett felhasználó kedvenc jelölésével; a kedvencek a
+     * felhasználónkénti gyorsítótárból jönnek, így ez nem jár külön lekérdezéssel.
+     */
+    public Page<MedicationListItemResponse> search(MedicationSearchCriteria criteria, Pageable pageable, Long userId) {
         Specification<Medication> spec = buildSpecification(criteria);
         Page<Medication> page = medicationRepository.findAll(spec, adjust(pageable));
+        // Az oldal összes értékelési összesítője egyetlen lekérdezéssel
+        Map<Integer, MedicationRatingAggregate> ratings = reviewRatingAggregator.findAll(page.stream()
+                .map(Medication::getId)
+                .filter(Objects::nonNull)
+                .map(Long::intValue)
+                .toList());
+        long[] favoriteIds = userId != null ? favoriteMembershipCache.medicationIds(userId) : new long[0];
         List<MedicationListItemResponse> content = page.stream()
-                .map(MedicationCatalogService::mapToListItem)
+                .map(medication -> mapToListItem(medication, ratings.get(medication.getId().intValue()),
+                        Arrays.binarySearch(favoriteIds, medication.getId()) >= 0))
                 .toList();
         return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
     }
@@ -145,7 +168,8 @@ public class MedicationCatalogService {
         return "%" + value + "%";
     }
 
-    private static MedicationListItemResponse mapToListItem(Medication medication) {
+    private static MedicationListItemResponse mapToListItem(Medication medication, MedicationRatingAggregate rating,
+                                                            boolean favorite) {
         return new MedicationListItemResponse(
                 medication.getId(),
                 medication.getName(),
@@ -159,6 +183,9 @@ public class MedicationCatalogService {
                 !medication.isContainsGluten(),
                 !medication.isContainsBenzoate(),
                 medication.getNarcotic() != null && !medication.getNarcotic().isBlank(),
-                medication.isActive());
+                medication.isActive(),
+                rating != null && rating.getReviewCount() > 0 ? rating.getAverageRating() : null,
+                rating != null ? rating.getReviewCount() : 0,
+                favorite);
     }
 }
@@ -0,0 +1,56 @@
+package hu.project.MediWeb.modules.medication.service;
+
+import hu.project.MediWeb.cache.AfterCommit;
+import hu.project.MediWeb.cache.LruTtlCache;
+import hu.project.MediWeb.modules.medication.dto.MedicationDetailsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Memóriában tartott, teljesen felépített gyógyszer részletek. A népszerű
+ * adatlapok így adatbázis-olvasás és JSON feldolgozás nélkül szolgálhatók ki.
+ * Az írások a tranzakció lezárása után törlik az érintett bejegyzéseket.
+ */
+@Component
+public class MedicationDetailsCache {
+
+    private final LruTtlCache<Long, MedicationDetailsResponse> entries;
+
+    public MedicationDetailsCache(@Value("${medication.details-cache.max-entries:1000}") int maxEntries,
+                                  @Value("${medication.details-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.entries = new LruTtlCache<>(maxEntries, Duration.ofMinutes(Math.max(ttlMinutes, 1)));
+    }
+
+    public MedicationDetailsResponse get(Long itemId) {
+        return itemId != null ? entries.get(itemId) : null;
+    }
+
+    public void put(Long itemId, MedicationDetailsResponse response) {
+        entries.put(itemId, response);
+    }
+
+    public void evict(Long itemId) {
+        evictAll(itemId != null ? List.of(itemId) : List.of());
+    }
+
+    /**
+     * Futó tranzakció esetén a commit után töröl, hogy egy közbeeső olvasás
+     * ne tölthesse vissza a még régi állapotot.
+     */
+    public void evictAll(Collection<Long> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = itemIds.stream().filter(Objects::nonNull).toList();
+        AfterCommit.runNowAndAfterCommit(() -> ids.forEach(entries::remove));
+    }
+
+    public void clear() {
+        AfterCommit.runNowAndAfterCommit(entries::clear);
+    }
+}
@@ -15,25 +15,18 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.net.HttpURLConnection;
-import java.net.URI;
 import java.time.DateTimeException;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -52,6 +45,8 @@ public class MedicationService {
     private final AsyncHttpClientService asyncHttpClient;
     private final MedicationRepository medicationRepository;
     private final HazipatikaSearchService hazipatikaSearchService;
+    private final MedicationDetailsCache medicationDetailsCache;
+    private final ImageUrlValidator imageUrlValidator;
 
     @Value("${medication.image.refresh-days:30}")
     private int imageRefreshDays;
@@ -60,7 +55,16 @@ public class MedicationService {
     }
 
     public MedicationDetailsResponse getMedicationDetails(Long itemId) throws Exception {
-        return getMedicationDetailsInternal(itemId, false);
+        return getMedicationDetails(itemId, () -> {
+        });
+    }
+
+    /**
+     * Mint {@link #getMedicationDetails(Long)}, de a beforeOgyeiFetch közvetlenül az OGYÉI
+     * lekérés előtt fut, gyorsítótár-találatnál nem; kivételével a lekérés elmarad.
+     */
+    public MedicationDetailsResponse getMedicationDetails(Long itemId, Runnable beforeOgyeiFetch) throws Exception {
+        return getMedicationDetailsInternal(itemId, false, beforeOgyeiFetch);
     }
 
     public MedicationDetailsResponse refreshMedication(Long itemId) throws Exception {
@@ -116,12 +120,14 @@ public class MedicationService {
         if (processedIds == null || processedIds.isEmpty()) {
             log.info("No medications discovered during sync run; deactivating all entries");
             medicationRepository.deactivateAll();
+            medicationDetailsCache.clear();
             return;
         }
 
         log.info("Marking {} medications as active and deactivating missing entries", processedIds.size());
         medicationRepository.activateExisting(processedIds);
         medicationRepository.deactivateMissing(processedIds);
+        medicationDetailsCache.clear();
     }
 
     public Set<Long> fetchExistingMedicationIds() {
@@ -141,146 +147,20 @@ public class MedicationService {
     }
 
     /**
-     * Validates all active medication image URLs via HEAD requests.
-     * Clears broken URLs so the image sync can re-fetch them.
-     * Returns the number of broken URLs cleared.
-     *
-     * Uses a lightweight projection (id + imageUrl only) to release the DB
-     * connection immediately, then does HEAD requests without holding any
-     * database resources.
+     * Validates active medication image URLs that are new or stale via async HEAD
+     * requests (see {@link ImageUrlValidator}) and clears the broken ones so the
+     * image sync can re-fetch them. Returns the number of broken URLs cleared.
      *
      * @param progressCallback optional callback receiving int[]{checked, total, brokenSoFar}
      */
     public int cleanupBrokenImageUrls(Consumer<int[]> progressCallback) {
-        // Lightweight query — only id + imageUrl, releases DB connection immediately
-        List<Object[]> pairs = medicationRepository.findActiveImageUrlPairs();
-        if (pairs.isEmpty()) {
-            log.info("[IMAGE-CLEANUP] No medications with image URLs found");
-            if (progressCallback != null) progressCallback.accept(new int[]{0, 0, 0});
-            return 0;
-        }
-
-        // Copy into simple records so JPA entities are fully detached
-        record IdUrl(Long id, String url) {}
-        List<IdUrl> items = new ArrayList<>(pairs.size());
-        for (Object[] row : pairs) {
-            items.add(new IdUrl((Long) row[0], (String) row[1]));
-        }
-        pairs.clear(); // free JPA result
-
-        int total = items.size();
-        log.info("[IMAGE-CLEANUP] Validating {} image URLs...", total);
-
-        // Report initial count so caller can set up progress tracking
-        if (progressCallback != null) {
-            progressCallback.accept(new int[]{0, total, 0});
-        }
-
-        List<Long> brokenIds = Collections.synchronizedList(new ArrayList<>());
-        AtomicInteger checked = new AtomicInteger(0);
-        ExecutorService executor = Executors.newFixedThreadPool(10);
-
-        try {
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            for (IdUrl item : items) {
-                futures.add(CompletableFuture.runAsync(() -> {
-                    boolean valid = isImageUrlReachable(item.url());
-                    int count = checked.incrementAndGet();
-                    if (!valid) {
-                        brokenIds.add(item.id());
-                    }
-                    if (progressCallback != null && (count % 50 == 0 || count == total)) {
-                        progressCallback.accept(new int[]{count, total, brokenIds.size()});
-                    }
-                    if (count % 500 == 0) {
-                        log.info("[IMAGE-CLEANUP] Checked {}/{} URLs (broken: {})...", count, total, brokenIds.size());
-                    }
-                }, executor));
-            }
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-        } finally {
-            executor.shutdown();
-            try { executor.awaitTermination(10, TimeUnit.MINUTES); } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-
-        // Final progress report
-        if (progressCallback != null) {
-            progressCallback.accept(new int[]{total, total, brokenIds.size()});
-        }
-
-        if (brokenIds.isEmpty()) {
-            log.info("[IMAGE-CLEANUP] All {} image URLs are valid", total);
-            return 0;
-        }
-
-        log.info("[IMAGE-CLEANUP] Found {} broken image URLs out of {}, clearing...", brokenIds.size(), total);
-        clearBrokenImageUrls(brokenIds);
-        return brokenIds.size();
+        return imageUrlValidator.validateStaleImageUrls(progressCallback);
     }
 
     public int cleanupBrokenImageUrls() {
         return cleanupBrokenImageUrls(null);
     }
 
-    @Transactional
-    public void clearBrokenImageUrls(List<Long> ids) {
-        // Batch in chunks of 500 to avoid huge IN clauses
-        for (int i = 0; i < ids.size(); i += 500) {
-            List<Long> chunk = ids.subList(i, Math.min(i + 500, ids.size()));
-            medicationRepository.clearImageUrls(chunk);
-        }
-    }
-
-    private boolean isImageUrlReachable(String url) {
-        if (url == null || url.isBlank()) return false;
-        
-        // Known bad patterns (placeholders, generic icons)
-        String lowerUrl = url.toLowerCase();
-        if (lowerUrl.contains("no-image") || lowerUrl.contains("placeholder") || 
-            lowerUrl.contains("default-pill") || lowerUrl.contains("generic-med")) {
-            log.debug("[IMAGE-VALIDATION] Rejected placeholder-like URL: {}", url);
-            return false;
-        }
-
-        try {
-            HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
-            conn.setRequestMethod("HEAD");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setInstanceFollowRedirects(true);
-            conn.setRequestProperty("User-Agent", "MediWeb/1.0 image-validator");
-            
-            int code = conn.getResponseCode();
-            if (code < 200 || code >= 400) {
-                conn.disconnect();
-                return false;
-            }
-
-            // Check content type
-            String contentType = conn.getContentType();
-            if (contentType != null && !contentType.toLowerCase().startsWith("image/")) {
-                log.debug("[IMAGE-VALIDATION] Rejected non-image Content-Type ({}): {}", contentType, url);
-                conn.disconnect();
-                return false;
-            }
-
-            // Check content length (avoid tiny icons/placeholders which are often < 2KB)
-            long contentLength = conn.getContentLengthLong();
-            if (contentLength > 0 && contentLength < 2048) {
-                log.debug("[IMAGE-VALIDATION] Rejected tiny image ({} bytes): {}", contentLength, url);
-                conn.disconnect();
-                return false;
-            }
-
-            conn.disconnect();
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     /**
      * Fetches an image for an existing medication from web search (no OGYEI scraping).
      * Returns true if a new image was found and saved, false otherwise.
@@ -330,6 +210,7 @@ public class MedicationService {
             med.setImageUrl(imageUrl);
             med.setLastUpdated(LocalDateTime.now());
             medicationRepository.save(med);
+            medicationDetailsCache.evict(medicationId);
         });
     }
 
@@ -352,17 +233,30 @@ public class MedicationService {
         medicationRepository.updateLastReviewedAt(ids, LocalDateTime.now());
     }
 
-    private MedicationDetailsResponse getMedicationDetailsInternal(Long itemId, boolean forceRefresh) throws Exception {
+    private MedicationDetailsResponse getMedicationDetailsInternal(Long itemId, boolean forceRefresh,
+                                                                  Runnable beforeOgyeiFetch) throws Exception {
         log.debug("🔍 [MEDICATION] Starting getMedicationDetails for ID: {}", itemId);
+        if (!forceRefresh) {
+            MedicationDetailsResponse cached = medicationDetailsCache.get(itemId);
+            if (cached != null) {
+                log.debug("✅ [MEDICATION] Returning in-memory medication data for id={}", itemId);
+                return cached;
+            }
+        }
         Optional<Medication> optional = medicationRepository.findById(itemId);
 
         // If we have cached data, return it immediately unless force refresh is
         // requested
         if (optional.isPresent() && !forceRefresh) {
             log.debug("✅ [MEDICATION] Returning cached medication data for id={}", itemId);
-            return MedicationDetailsMapper.toDto(optional.get());
+            MedicationDetailsResponse response = MedicationDetailsMapper.toDto(optional.get());
+            medicationDetailsCache.put(itemId, response);
+            return response;
         }
 
+        // Innentől az OGYÉI felé hívunk
+        beforeOgyeiFetch.run();
+
         // If we have cached data but need to refresh, try OGYEI but fallback to cache
         // on error
         if (optional.isPresent() && forceRefresh) {
@@ -525,6 +419,7 @@ public class MedicationService {
     @Transactional
     protected void persistMedicationSnapshot(Medication medication) {
         medicationRepository.save(medication);
+        medicationDetailsCache.evict(medication.getId());
     }
 
     @Transactional
@@ -533,6 +428,7 @@ public class MedicationService {
             return;
         }
         medicationRepository.saveAll(medications);
+        medicationDetailsCache.evictAll(medications.stream().map(Medication::getId).toList());
     }
 
     private Medication buildMedicationSnapshot(Long itemId, MedicationDetailsResponse response, Medication existing) {
@@ -0,0 +1,25 @@
+package hu.project.MediWeb.modules.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "notification.missed-doses")
+public class MissedDoseProperties {
+
+    /**
+     * PERSISTED: az ütemező minden jelöletlen adaghoz "taken=false" naplósort ír.
+     * DERIVED: csak a felhasználói jelölések kerülnek a naplóba, az elmulasztott
+     * adagokat az emlékeztető ütemezésből vezetjük le.
+     */
+    private Mode mode = Mode.PERSISTED;
+
+    public boolean isDerived() {
+        return mode == Mode.DERIVED;
+    }
+
+    public enum Mode {
+        PERSISTED,
+        DERIVED
+    }
+}
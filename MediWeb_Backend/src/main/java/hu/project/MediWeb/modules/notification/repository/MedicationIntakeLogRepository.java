@@ -1,11 +1,16 @@
 package hu.project.MediWeb.modules.notification.repository;
 
 import hu.project.MediWeb.modules.notification.entity.MedicationIntakeLog;
+import hu.project.MediWeb.modules.notification.repository.projection.IntakeHourlyAggregateProjection;
+import hu.project.MediWeb.modules.notification.repository.projection.IntakeSlotProjection;
 import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,9 +28,40 @@ public interface MedicationIntakeLogRepository extends JpaRepository<MedicationI
         LocalDate endDate
     );
 
+    /**
+     * Több profil adott napi bevételi állapota egyetlen lekérdezéssel, a
+     * napló entitások és kapcsolataik betöltése nélkül.
+     */
+    @Query("SELECT l.profileMedication.id AS profileMedicationId, l.intakeTime AS intakeTime, l.taken AS taken " +
+            "FROM MedicationIntakeLog l " +
+            "WHERE l.profileMedication.profile.id IN :profileIds AND l.intakeDate = :intakeDate")
+    List<IntakeSlotProjection> findIntakeSlotsForProfiles(@Param("profileIds") Collection<Long> profileIds,
+                                                          @Param("intakeDate") LocalDate intakeDate);
+
     boolean existsByProfileMedicationAndIntakeDateAndIntakeTime(
             ProfileMedication profileMedication,
             LocalDate intakeDate,
             LocalTime intakeTime
     );
-}
\ No newline at end of file
+
+    /**
+     * Nap, ütemezett óra és ATC főcsoport szerinti csoportosítás az adatbázisban,
+     * a napi összesítők újraépítéséhez.
+     */
+    @Query(value = "SELECT p.user_id AS \"userId\", " +
+            "l.profile_medication_id AS \"profileMedicationId\", " +
+            "CAST(date_trunc('day', l.intake_date) AS date) AS \"intakeDay\", " +
+            "CAST(EXTRACT(HOUR FROM l.intake_time) AS integer) AS \"intakeHour\", " +
+            "UPPER(LEFT(NULLIF(TRIM(m.atc_code), ''), 1)) AS \"atcGroup\", " +
+            "COUNT(*) FILTER (WHERE l.taken) AS \"takenCount\", " +
+            "COUNT(*) FILTER (WHERE NOT l.taken) AS \"missedCount\" " +
+            "FROM medication_intake_log l " +
+            "JOIN profile_medications pm ON pm.id = l.profile_medication_id " +
+            "JOIN profiles p ON p.id = pm.profile_id " +
+            "JOIN medications m ON m.id = pm.medication_id " +
+            "WHERE l.intake_date BETWEEN :startDate AND :endDate " +
+            "GROUP BY 1, 2, 3, 4, 5",
+            nativeQuery = true)
+    List<IntakeHourlyAggregateProjection> aggregateHourly(@Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,13 @@
+package hu.project.MediWeb.modules.notification.repository.projection;
+
+import java.time.LocalDate;
+
+public interface IntakeHourlyAggregateProjection {
+    Long getUserId();
+    Long getProfileMedicationId();
+    LocalDate getIntakeDay();
+    Integer getIntakeHour();
+    String getAtcGroup();
+    Long getTakenCount();
+    Long getMissedCount();
+}
@@ -0,0 +1,9 @@
+package hu.project.MediWeb.modules.notification.repository.projection;
+
+import java.time.LocalTime;
+
+public interface IntakeSlotProjection {
+    Long getProfileMedicationId();
+    LocalTime getIntakeTime();
+    Boolean getTaken();
+}
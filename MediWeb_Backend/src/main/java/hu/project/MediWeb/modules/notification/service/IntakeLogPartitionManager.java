@@ -0,0 +1,263 @@
+package hu.project.MediWeb.modules.notification.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A "medication_intake_log" havi (intake_date szerinti) partícióinak kezelése.
+ * Előre létrehozza a következő hónapok partícióit, a megőrzési időn túli
+ * hónapokat pedig tömörített CSV fájlba archiválja, leválasztja és eldobja.
+ * Sikertelen archiválásnál a partíció csatolva marad, a következő futás újrapróbálja.
+ */
+@Slf4j
+@Component
+public class IntakeLogPartitionManager {
+
+    public static final String TABLE_NAME = "medication_intake_log";
+    public static final String DEFAULT_PARTITION = TABLE_NAME + "_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE_NAME + "_p(\\d{4})_(\\d{2})");
+    private static final String ARCHIVE_COLUMNS = "id, profile_medication_id, intake_date, intake_time, taken, recorded_at";
+    private static final String PARTITION_COLUMNS = "id, profile_medication_id, intake_date, intake_time, taken, recorded_at, created_at";
+    private static final int ARCHIVE_FETCH_SIZE = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate archiveJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archiveEnabled;
+    private final Path archiveDirectory;
+
+    public IntakeLogPartitionManager(JdbcTemplate jdbcTemplate,
+                                     DataSource dataSource,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${intake-log.partitioning.enabled:true}") boolean enabled,
+                                     @Value("${intake-log.partitioning.months-ahead:3}") int monthsAhead,
+                                     @Value("${intake-log.partitioning.retention-months:0}") int retentionMonths,
+                                     @Value("${intake-log.partitioning.archive.enabled:true}") boolean archiveEnabled,
+                                     @Value("${intake-log.partitioning.archive.directory:./archive/intake-log}") String archiveDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveJdbcTemplate = new JdbcTemplate(dataSource);
+        this.archiveJdbcTemplate.setFetchSize(ARCHIVE_FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.monthsAhead = Math.max(monthsAhead, 1);
+        this.retentionMonths = Math.max(retentionMonths, 0);
+        this.archiveEnabled = archiveEnabled;
+        this.archiveDirectory = Paths.get(archiveDirectory);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMonthsAhead() {
+        return monthsAhead;
+    }
+
+    public boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = 'public' AND c.relname = ?", String.class, TABLE_NAME);
+        return !kinds.isEmpty() && "p".equals(kinds.get(0));
+    }
+
+    /**
+     * A megadott hónapok (mindkét végpontot beleértve) partícióinak létrehozása, ha még nincsenek meg.
+     * Egy hónap hibája nem akadályozza a többit; tranzakción belül a {@link #createPartitionsOrFail} való.
+     */
+    public void createPartitions(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            try {
+                createPartition(month);
+            } catch (Exception e) {
+                log.error("[INTAKE-LOG] Partíció létrehozása sikertelen: {}", partitionName(month), e);
+            }
+        }
+    }
+
+    /**
+     * Mint a {@link #createPartitions}, de az első hibánál megáll és továbbdobja. Tranzakción
+     * belüli átalakításhoz: PostgreSQL-ben egy hibás utasítás után a tranzakció már csak
+     * visszagörgethető, ezért a hibát nem szabad elnyelni.
+     */
+    public void createPartitionsOrFail(YearMonth from, YearMonth to) {
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+    }
+
+    public void ensureDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION +
+                " PARTITION OF " + TABLE_NAME + " DEFAULT");
+    }
+
+    public void ensureUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        createPartitions(current.minusMonths(1), current.plusMonths(monthsAhead));
+        ensureDefaultPartition();
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        if (tableExists(partition)) {
+            return;
+        }
+        String bounds = "FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+        if (!tableExists(DEFAULT_PARTITION) || !defaultPartitionHasRows(month)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TABLE_NAME +
+                    " FOR VALUES " + bounds);
+            return;
+        }
+
+        // A DEFAULT partíció már tartalmaz ilyen hónapú sorokat: ezeket egy tranzakcióban
+        // átmozgatjuk az új táblába, és csak ezután csatoljuk partícióként
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + TABLE_NAME + " INCLUDING DEFAULTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                            " WHERE intake_date >= ? AND intake_date < ? RETURNING " + PARTITION_COLUMNS + ") " +
+                            "INSERT INTO " + partition + " (" + PARTITION_COLUMNS + ") SELECT " + PARTITION_COLUMNS + " FROM moved",
+                    Date.valueOf(month.atDay(1)), Date.valueOf(month.plusMonths(1).atDay(1)));
+            jdbcTemplate.execute("ALTER TABLE " + TABLE_NAME + " ATTACH PARTITION " + partition + " FOR VALUES " + bounds);
+            log.info("[INTAKE-LOG] Partíció létrehozva a DEFAULT partícióból áthozott {} sorral: {}", moved, partition);
+        });
+    }
+
+    private boolean defaultPartitionHasRows(YearMonth month) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION +
+                        " WHERE intake_date >= ? AND intake_date < ?)", Boolean.class,
+                Date.valueOf(month.atDay(1)), Date.valueOf(month.plusMonths(1).atDay(1)));
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private boolean tableExists(String table) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, "public." + table);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    @Scheduled(cron = "${intake-log.partitioning.maintenance-cron:0 45 2 * * *}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!isPartitioned()) {
+                return;
+            }
+            ensureUpcomingPartitions();
+            if (retentionMonths > 0) {
+                retireExpiredPartitions(YearMonth.now().minusMonths(retentionMonths));
+            }
+        } catch (Exception e) {
+            log.error("[INTAKE-LOG] Partíciók karbantartása sikertelen", e);
+        }
+    }
+
+    /**
+     * A lejárt hónapok táblái, a korábbi futásokból leválasztva maradtakat is beleértve.
+     */
+    private void retireExpiredPartitions(YearMonth cutoff) {
+        List<Map<String, Object>> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname::text AS name, " +
+                "EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid) AS attached " +
+                "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = 'public' AND c.relkind = 'r' AND c.relname LIKE ? ORDER BY c.relname",
+                TABLE_NAME + "\\_p%");
+
+        for (Map<String, Object> partition : partitions) {
+            String name = (String) partition.get("name");
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(cutoff)) {
+                try {
+                    retirePartition(name, Boolean.TRUE.equals(partition.get("attached")));
+                } catch (Exception e) {
+                    // A tábla érintetlen marad, a következő futás újrapróbálja
+                    log.error("[INTAKE-LOG] Partíció kivezetése sikertelen, a következő futás újrapróbálja: {}", name, e);
+                }
+            }
+        }
+    }
+
+    private void retirePartition(String partition, boolean attached) throws IOException {
+        // Archiválás a leválasztás előtt: hiba esetén a partíció csatolva marad
+        Path archive = archiveEnabled ? archivePartition(partition) : null;
+        if (attached) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE_NAME + " DETACH PARTITION " + partition);
+        }
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        if (archive != null) {
+            log.info("[INTAKE-LOG] Partíció archiválva és eldobva: {} -> {}", partition, archive);
+        } else {
+            log.info("[INTAKE-LOG] Partíció eldobva (archiválás kikapcsolva): {}", partition);
+        }
+    }
+
+    private Path archivePartition(String partition) throws IOException {
+        Files.createDirectories(archiveDirectory);
+        Path target = archiveDirectory.resolve(partition + ".csv.gz");
+        Path temp = archiveDirectory.resolve(partition + ".csv.gz.tmp");
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+            writer.write(ARCHIVE_COLUMNS.replace(" ", ""));
+            writer.write('\n');
+            // Kurzoros olvasás csak tranzakción belül működik a PostgreSQL driverrel
+            transactionTemplate.executeWithoutResult(status -> archiveJdbcTemplate.query(
+                    "SELECT " + ARCHIVE_COLUMNS + " FROM " + partition + " ORDER BY id",
+                    rs -> {
+                        try {
+                            writer.write(rs.getLong(1) + "," + rs.getLong(2) + "," + rs.getDate(3) + "," +
+                                    rs.getTime(4) + "," + rs.getBoolean(5) + "," + nullToEmpty(rs.getTimestamp(6)) + "\n");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return String.format("%s_p%04d_%02d", TABLE_NAME, month.getYear(), month.getMonthValue());
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
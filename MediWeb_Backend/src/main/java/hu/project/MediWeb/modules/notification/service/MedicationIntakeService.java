@@ -4,13 +4,17 @@ import hu.project.MediWeb.modules.notification.dto.IntakeSubmissionRequest;
 import hu.project.MediWeb.modules.notification.dto.TodaysMedicationDTO;
 import hu.project.MediWeb.modules.notification.entity.MedicationIntakeLog;
 import hu.project.MediWeb.modules.notification.repository.MedicationIntakeLogRepository;
+import hu.project.MediWeb.modules.notification.repository.projection.IntakeSlotProjection;
 import hu.project.MediWeb.modules.profile.dto.MultiDayReminderGroup;
 import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
+import hu.project.MediWeb.modules.profile.event.UserMedicationDataChangedEvent;
 import hu.project.MediWeb.modules.profile.repository.ProfileMedicationRepository;
+import hu.project.MediWeb.modules.statistic.service.IntakeRollupService;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -24,15 +28,40 @@ public class MedicationIntakeService {
 
     private final ProfileMedicationRepository medicationRepository;
     private final MedicationIntakeLogRepository intakeLogRepository;
+    private final IntakeRollupService intakeRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MissedDoseDeriver missedDoseDeriver;
 
     public List<TodaysMedicationDTO> getMedicationsForToday(Long profileId) {
-        DayOfWeek today = LocalDate.now().getDayOfWeek();
-        String dayCode = getDayCode(today);
-
         List<ProfileMedication> medications = medicationRepository.findByProfileId(profileId);
-        List<TodaysMedicationDTO> result = new ArrayList<>();
+        return resolveTodaysMedications(medications).getOrDefault(profileId, new ArrayList<>());
+    }
+
+    /**
+     * A megadott profil-gyógyszerek mai adagjai profilonként csoportosítva. A mai
+     * naplóbejegyzéseket egyetlen lekérdezés tölti be (profil-gyógyszer, időpont) kulcsú térképbe.
+     */
+    public Map<Long, List<TodaysMedicationDTO>> resolveTodaysMedications(Collection<ProfileMedication> medications) {
+        if (medications == null || medications.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        LocalDate todayDate = LocalDate.now();
+        String dayCode = getDayCode(todayDate.getDayOfWeek());
+
+        Set<Long> profileIds = new HashSet<>();
+        for (ProfileMedication med : medications) {
+            if (med.getProfile() != null) {
+                profileIds.add(med.getProfile().getId());
+            }
+        }
+        Map<IntakeSlotKey, Boolean> takenBySlot = loadTakenFlags(profileIds, todayDate);
 
+        Map<Long, List<TodaysMedicationDTO>> result = new LinkedHashMap<>();
         for (ProfileMedication med : medications) {
+            if (med.getProfile() == null) {
+                continue;
+            }
             try {
                 List<MultiDayReminderGroup> groups = parseReminders(med.getReminders());
                 List<String> timesToday = new ArrayList<>();
@@ -46,23 +75,17 @@ public class MedicationIntakeService {
                 if (!timesToday.isEmpty()) {
                     List<Boolean> takenFlags = new ArrayList<>();
                     for (String time : timesToday) {
-                        Boolean taken = intakeLogRepository
-                                .findByProfileMedicationAndIntakeDateAndIntakeTime(
-                                        med,
-                                        LocalDate.now(),
-                                        LocalTime.parse(time)
-                                )
-                                .map(MedicationIntakeLog::isTaken)
-                                .orElse(false);
-                        takenFlags.add(taken);
+                        IntakeSlotKey key = new IntakeSlotKey(med.getId(), LocalTime.parse(time));
+                        takenFlags.add(takenBySlot.getOrDefault(key, false));
                     }
 
-                    result.add(new TodaysMedicationDTO(
-                            med.getId(),
-                            med.getMedication().getName(),
-                            timesToday,
-                            takenFlags
-                    ));
+                    result.computeIfAbsent(med.getProfile().getId(), id -> new ArrayList<>())
+                            .add(new TodaysMedicationDTO(
+                                    med.getId(),
+                                    med.getMedication().getName(),
+                                    timesToday,
+                                    takenFlags
+                            ));
                 }
 
             } catch (Exception e) {
@@ -73,6 +96,19 @@ public class MedicationIntakeService {
         return result;
     }
 
+    private Map<IntakeSlotKey, Boolean> loadTakenFlags(Set<Long> profileIds, LocalDate date) {
+        if (profileIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<IntakeSlotKey, Boolean> takenBySlot = new HashMap<>();
+        for (IntakeSlotProjection slot : intakeLogRepository.findIntakeSlotsForProfiles(profileIds, date)) {
+            takenBySlot.put(new IntakeSlotKey(slot.getProfileMedicationId(), slot.getIntakeTime()),
+                    Boolean.TRUE.equals(slot.getTaken()));
+        }
+        return takenBySlot;
+    }
+
+    @Transactional
     public void recordIntake(IntakeSubmissionRequest request) {
         ProfileMedication medication = medicationRepository.findById(request.getProfileMedicationId())
                 .orElseThrow(() -> new IllegalArgumentException("Nincs ilyen gyógyszerkapcsolat"));
@@ -89,8 +125,18 @@ public class MedicationIntakeService {
                         .intakeTime(LocalTime.parse(request.getTime()))
                         .build());
 
+        Boolean previousTaken = log.getId() != null ? log.isTaken() : null;
+        if (previousTaken == null && missedDoseDeriver.isCountedAsMissed(
+                medication, log.getIntakeDate(), log.getIntakeTime(), LocalDateTime.now())) {
+            previousTaken = false;
+        }
         log.setTaken(request.isTaken());
         log.setRecordedAt(LocalDateTime.now());
         intakeLogRepository.save(log);
+        intakeRollupService.recordChange(medication, log.getIntakeDate(), log.getIntakeTime(), previousTaken, log.isTaken());
+        eventPublisher.publishEvent(new UserMedicationDataChangedEvent(medication.getProfile().getUser().getId()));
+    }
+
+    private record IntakeSlotKey(Long profileMedicationId, LocalTime time) {
     }
-}
\ No newline at end of file
+}
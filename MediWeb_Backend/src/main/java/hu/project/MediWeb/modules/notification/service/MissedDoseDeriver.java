@@ -0,0 +1,93 @@
+package hu.project.MediWeb.modules.notification.service;
+
+import hu.project.MediWeb.modules.notification.config.MissedDoseProperties;
+import hu.project.MediWeb.modules.profile.dto.MultiDayReminderGroup;
+import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static hu.project.MediWeb.modules.notification.utils.ReminderUtils.getDayCode;
+import static hu.project.MediWeb.modules.notification.utils.ReminderUtils.parseReminders;
+
+/**
+ * Az elmulasztott adagok levezetése az emlékeztető ütemezésből. Derivált
+ * módban egy adag akkor számít elmulasztottnak, ha az ütemezett időpont után
+ * egy perccel sincs róla naplóbejegyzés (ekkor fut rá az ütemező is).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MissedDoseDeriver {
+
+    private static final long GRACE_MINUTES = 1;
+
+    private final MissedDoseProperties properties;
+
+    public boolean isDerived() {
+        return properties.isDerived();
+    }
+
+    /**
+     * Az adott napra ütemezett időpontok, a gyógyszer profilhoz adása előtti adagok nélkül.
+     */
+    public List<LocalTime> scheduledTimes(ProfileMedication medication, LocalDate date) {
+        List<LocalTime> times = new ArrayList<>();
+        List<MultiDayReminderGroup> groups;
+        try {
+            groups = parseReminders(medication.getReminders());
+        } catch (Exception e) {
+            log.debug("Emlékeztetők nem értelmezhetők: {}", medication.getId());
+            return times;
+        }
+
+        String dayCode = getDayCode(date.getDayOfWeek());
+        LocalDateTime addedAt = medication.getAddedAt();
+        for (MultiDayReminderGroup group : groups) {
+            if (group.getDays() == null || group.getTimes() == null || !group.getDays().contains(dayCode)) {
+                continue;
+            }
+            for (String time : group.getTimes()) {
+                try {
+                    LocalTime parsed = LocalTime.parse(time);
+                    if (addedAt == null || !date.atTime(parsed).isBefore(addedAt)) {
+                        times.add(parsed);
+                    }
+                } catch (Exception e) {
+                    log.debug("Hibás emlékeztető időpont: {} ({})", time, medication.getId());
+                }
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Az adott napi, a megadott pillanatig már lejárt ütemezett időpontok.
+     */
+    public List<LocalTime> elapsedScheduledTimes(ProfileMedication medication, LocalDate date, LocalDateTime now) {
+        return scheduledTimes(medication, date).stream()
+                .filter(time -> isElapsed(date, time, now))
+                .toList();
+    }
+
+    /**
+     * Derivált módban az ütemező a napló nélküli, lejárt adagot már elmulasztottként
+     * vezette át az összesítőn; egy későbbi jelölésnek ezt kell felülírnia.
+     */
+    public boolean isCountedAsMissed(ProfileMedication medication, LocalDate date, LocalTime time, LocalDateTime now) {
+        if (!isDerived() || !isElapsed(date, time, now)) {
+            return false;
+        }
+        return scheduledTimes(medication, date).contains(time);
+    }
+
+    private boolean isElapsed(LocalDate date, LocalTime time, LocalDateTime now) {
+        return !date.atTime(time).plusMinutes(GRACE_MINUTES).isAfter(now);
+    }
+}
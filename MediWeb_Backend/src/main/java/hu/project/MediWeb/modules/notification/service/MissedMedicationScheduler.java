@@ -4,9 +4,12 @@ import hu.project.MediWeb.modules.notification.entity.MedicationIntakeLog;
 import hu.project.MediWeb.modules.notification.repository.MedicationIntakeLogRepository;
 import hu.project.MediWeb.modules.profile.dto.MultiDayReminderGroup;
 import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
+import hu.project.MediWeb.modules.profile.event.UserMedicationDataChangedEvent;
 import hu.project.MediWeb.modules.profile.repository.ProfileMedicationRepository;
+import hu.project.MediWeb.modules.statistic.service.IntakeRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -25,6 +28,9 @@ public class MissedMedicationScheduler {
 
     private final ProfileMedicationRepository profileMedicationRepository;
     private final MedicationIntakeLogRepository intakeLogRepository;
+    private final IntakeRollupService intakeRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MissedDoseDeriver missedDoseDeriver;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
 
     @Scheduled(cron = "0 * * * * *")
@@ -52,7 +58,13 @@ public class MissedMedicationScheduler {
                                     med, today, scheduledTime
                             );
 
-                            if (!exists) {
+                            if (!exists && missedDoseDeriver.isDerived()) {
+                                // Derivált mód: nincs szintetikus naplósor, csak az összesítő frissül
+                                if (missedDoseDeriver.scheduledTimes(med, today).contains(scheduledTime)) {
+                                    intakeRollupService.recordChange(med, today, scheduledTime, null, false);
+                                    eventPublisher.publishEvent(new UserMedicationDataChangedEvent(med.getProfile().getUser().getId()));
+                                }
+                            } else if (!exists) {
                                 MedicationIntakeLog missedLog = MedicationIntakeLog.builder()
                                         .profileMedication(med)
                                         .intakeDate(today)
@@ -62,6 +74,8 @@ public class MissedMedicationScheduler {
                                         .build();
 
                                 intakeLogRepository.save(missedLog);
+                                intakeRollupService.recordChange(med, today, scheduledTime, null, false);
+                                eventPublisher.publishEvent(new UserMedicationDataChangedEvent(med.getProfile().getUser().getId()));
                                 log.info("Elmulasztott gyógyszer rögzítve: {} – {} [{}]",
                                         med.getMedication().getName(),
                                         med.getProfile().getName(),
@@ -0,0 +1,8 @@
+package hu.project.MediWeb.modules.profile.event;
+
+/**
+ * Egy felhasználó gyógyszerezési adatai (profilok, hozzárendelések, bevételi
+ * napló) megváltoztak; a felhasználóhoz tartozó gyorsítótárazott nézetek érvénytelenek.
+ */
+public record UserMedicationDataChangedEvent(Long userId) {
+}
@@ -3,12 +3,14 @@ package hu.project.MediWeb.modules.profile.repository;
 import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import hu.project.MediWeb.modules.profile.repository.projection.PopularMedicationProjection;
 
@@ -19,6 +21,16 @@ public interface ProfileMedicationRepository extends JpaRepository<ProfileMedica
 
     List<ProfileMedication> findByProfileIdIn(Collection<Long> profileIds);
 
+    /**
+     * Az adott időpont előtt felvett, emlékeztetővel rendelkező gyógyszerek a
+     * profillal, felhasználóval és gyógyszerrel együtt (elmulasztott adagok levezetéséhez).
+     */
+    @Query("SELECT pm FROM ProfileMedication pm " +
+           "JOIN FETCH pm.profile p JOIN FETCH p.user JOIN FETCH pm.medication " +
+           "WHERE pm.reminders IS NOT NULL AND pm.reminders <> '' " +
+           "AND (pm.addedAt IS NULL OR pm.addedAt < :addedBefore)")
+    List<ProfileMedication> findScheduledAddedBefore(@Param("addedBefore") LocalDateTime addedBefore);
+
     @Query("SELECT pm.medication.id AS medicationId, pm.medication.name AS name, COUNT(pm) AS usageCount " +
            "FROM ProfileMedication pm " +
            "GROUP BY pm.medication.id, pm.medication.name " +
@@ -5,11 +5,13 @@ import hu.project.MediWeb.modules.medication.repository.MedicationRepository;
 import hu.project.MediWeb.modules.profile.dto.ProfileMedicationDTO;
 import hu.project.MediWeb.modules.profile.entity.Profile;
 import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
+import hu.project.MediWeb.modules.profile.event.UserMedicationDataChangedEvent;
 import hu.project.MediWeb.modules.profile.exception.DuplicateAssignmentException;
 import hu.project.MediWeb.modules.profile.repository.ProfileMedicationRepository;
 import hu.project.MediWeb.modules.profile.repository.ProfileRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -27,6 +29,9 @@ public class ProfileMedicationService {
     @Autowired
     private MedicationRepository medicationRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public List<ProfileMedicationDTO> getMedicationsForProfile(Long profileId) {
         return profileMedicationRepository.findByProfileId(profileId).stream()
@@ -54,7 +59,9 @@ public class ProfileMedicationService {
                 .reminders("[]")
                 .build();
 
-        return convertToDTO(profileMedicationRepository.save(pm));
+        ProfileMedicationDTO saved = convertToDTO(profileMedicationRepository.save(pm));
+        publishChange(profile);
+        return saved;
     }
 
     @Transactional
@@ -65,12 +72,21 @@ public class ProfileMedicationService {
         existing.setNotes(note);
         existing.setReminders(remindersJson);
 
-        return convertToDTO(profileMedicationRepository.save(existing));
+        ProfileMedicationDTO saved = convertToDTO(profileMedicationRepository.save(existing));
+        publishChange(existing.getProfile());
+        return saved;
     }
 
     @Transactional
     public void removeMedication(Long profileId, Long medicationId) {
         profileMedicationRepository.deleteByProfileIdAndMedicationId(profileId, medicationId);
+        profileRepository.findById(profileId).ifPresent(this::publishChange);
+    }
+
+    private void publishChange(Profile profile) {
+        if (profile != null && profile.getUser() != null) {
+            eventPublisher.publishEvent(new UserMedicationDataChangedEvent(profile.getUser().getId()));
+        }
     }
 
     private ProfileMedicationDTO convertToDTO(ProfileMedication pm) {
@@ -2,10 +2,12 @@ package hu.project.MediWeb.modules.profile.service;
 
 import hu.project.MediWeb.modules.profile.dto.ProfileDTO;
 import hu.project.MediWeb.modules.profile.entity.Profile;
+import hu.project.MediWeb.modules.profile.event.UserMedicationDataChangedEvent;
 import hu.project.MediWeb.modules.profile.repository.ProfileRepository;
 import hu.project.MediWeb.modules.user.entity.User;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -17,6 +19,9 @@ public class ProfileService {
     @Autowired
     private ProfileRepository profileRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional
     public List<ProfileDTO> findByUser(User user) {
         return profileRepository.findAllByUser(user).stream()
@@ -34,6 +39,7 @@ public class ProfileService {
     @Transactional
     public ProfileDTO saveProfile(Profile profile) {
         Profile saved = profileRepository.save(profile);
+        publishChange(saved);
         return convertToDTO(saved);
     }
 
@@ -44,6 +50,7 @@ public class ProfileService {
                     existing.setName(updatedProfile.getName());
                     existing.setNotes(updatedProfile.getNotes());
                     Profile saved = profileRepository.save(existing);
+                    publishChange(saved);
                     return convertToDTO(saved);
                 })
                 .orElseThrow(() -> new IllegalArgumentException("Profil nem található ezzel az ID-val: " + id));
@@ -51,9 +58,16 @@ public class ProfileService {
 
     @Transactional
     public void deleteById(Long id) {
+        profileRepository.findById(id).ifPresent(this::publishChange);
         profileRepository.deleteById(id);
     }
 
+    private void publishChange(Profile profile) {
+        if (profile.getUser() != null) {
+            eventPublisher.publishEvent(new UserMedicationDataChangedEvent(profile.getUser().getId()));
+        }
+    }
+
     private ProfileDTO convertToDTO(Profile profile) {
         return ProfileDTO.builder()
                 .id(profile.getId())
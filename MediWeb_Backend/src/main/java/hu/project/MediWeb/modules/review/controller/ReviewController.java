@@ -6,6 +6,7 @@ import hu.project.MediWeb.modules.review.service.ReviewService;
 import hu.project.MediWeb.modules.user.entity.User;
 import hu.project.MediWeb.modules.user.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -25,6 +26,8 @@ public class ReviewController {
     private final ReviewService reviewService;
     private final UserService userService;
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || 
@@ -48,8 +51,11 @@ public class ReviewController {
 
 
     @GetMapping("/{itemId}")
-    public ReviewListResponse getReviews(@PathVariable int itemId) {
-        return reviewService.getReviewListForItem(itemId);
+    public ReviewListResponse getReviews(@PathVariable int itemId,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size) {
+        int safeSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return reviewService.getReviewListForItem(itemId, PageRequest.of(Math.max(page, 0), safeSize), getCurrentUser());
     }
 
     @PostMapping("/{itemId}")
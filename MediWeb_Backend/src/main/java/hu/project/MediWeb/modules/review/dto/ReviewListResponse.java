@@ -16,4 +16,10 @@ public class ReviewListResponse {
     private List<ReviewDTO> reviews;
     private double averageRating;
     private Map<Integer, Long> ratingDistribution;
+    private long totalReviews;
+    private int page;
+    private int size;
+    private int totalPages;
+    // A bejelentkezett felhasználó saját értékelése, akkor is, ha nem az aktuális oldalon van
+    private ReviewDTO ownReview;
 }
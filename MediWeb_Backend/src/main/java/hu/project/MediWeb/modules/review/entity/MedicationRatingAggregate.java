@@ -0,0 +1,62 @@
+package hu.project.MediWeb.modules.review.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gyógyszerenkénti értékelési összesítő ("medication_rating_aggregate" tábla).
+ * Az értékelések írásakor atomikusan frissül, így az átlaghoz és az eloszláshoz
+ * nem kell az összes értékelést betölteni.
+ */
+@Entity
+@Table(name = "medication_rating_aggregate")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MedicationRatingAggregate {
+
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    @Id
+    @Column(name = "item_id")
+    private Integer itemId;
+
+    @Column(name = "review_count", nullable = false)
+    private long reviewCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    // Értékelésenkénti (1-5) darabszám
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "rating_histogram", nullable = false, columnDefinition = "integer[]")
+    private int[] ratingHistogram;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public double getAverageRating() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+    }
+
+    public Map<Integer, Long> getRatingDistribution() {
+        Map<Integer, Long> distribution = new LinkedHashMap<>();
+        for (int rating = MIN_RATING; rating <= MAX_RATING; rating++) {
+            int index = rating - 1;
+            long count = ratingHistogram != null && index < ratingHistogram.length ? ratingHistogram[index] : 0;
+            if (count > 0) {
+                distribution.put(rating, count);
+            }
+        }
+        return distribution;
+    }
+}
@@ -0,0 +1,32 @@
+package hu.project.MediWeb.modules.review.repository;
+
+import hu.project.MediWeb.modules.review.entity.MedicationRatingAggregate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface MedicationRatingAggregateRepository extends JpaRepository<MedicationRatingAggregate, Integer> {
+
+    /**
+     * Atomikusan hozzáadja a változást a gyógyszer összesítőjéhez, szükség esetén létrehozva a sort.
+     * A rating egyben a hisztogram 1-alapú (PostgreSQL) tömbindexe.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO medication_rating_aggregate " +
+            "(item_id, review_count, rating_sum, rating_histogram, updated_at) " +
+            "VALUES (:itemId, GREATEST(:countDelta, 0), GREATEST(:sumDelta, 0), " +
+            "(SELECT array_agg(CASE WHEN r = :rating THEN GREATEST(:histogramDelta, 0) ELSE 0 END ORDER BY r) FROM generate_series(1, 5) r), " +
+            "CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (item_id) DO UPDATE SET " +
+            "review_count = GREATEST(medication_rating_aggregate.review_count + :countDelta, 0), " +
+            "rating_sum = GREATEST(medication_rating_aggregate.rating_sum + :sumDelta, 0), " +
+            "rating_histogram[:rating] = GREATEST(medication_rating_aggregate.rating_histogram[:rating] + :histogramDelta, 0), " +
+            "updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    void applyDelta(@Param("itemId") Integer itemId,
+                    @Param("rating") int rating,
+                    @Param("countDelta") int countDelta,
+                    @Param("sumDelta") int sumDelta,
+                    @Param("histogramDelta") int histogramDelta);
+}
@@ -3,9 +3,13 @@ package hu.project.MediWeb.modules.review.repository;
 import hu.project.MediWeb.modules.review.entity.ReviewReport;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,9 +19,23 @@ public interface ReviewReportRepository extends JpaRepository<ReviewReport, Long
 
     List<ReviewReport> findByReviewId(Long reviewId);
 
+    @EntityGraph(attributePaths = {"review", "review.user", "reporter"})
     Page<ReviewReport> findAllBy(Pageable pageable);
 
     void deleteByReviewId(Long reviewId);
 
     long countByReviewId(Long reviewId);
+
+    /**
+     * Bejelentések száma értékelésenként, egyetlen csoportosított lekérdezéssel.
+     */
+    @Query("SELECT r.review.id AS reviewId, COUNT(r) AS total FROM ReviewReport r " +
+            "WHERE r.review.id IN :reviewIds GROUP BY r.review.id")
+    List<ReviewReportCount> countByReviewIds(@Param("reviewIds") Collection<Long> reviewIds);
+
+    interface ReviewReportCount {
+        Long getReviewId();
+
+        long getTotal();
+    }
 }
@@ -0,0 +1,76 @@
+package hu.project.MediWeb.modules.review.service;
+
+import hu.project.MediWeb.modules.review.entity.MedicationRatingAggregate;
+import hu.project.MediWeb.modules.review.repository.MedicationRatingAggregateRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Az értékelési összesítők karbantartása. A hívó tranzakciójában fut, így az
+ * értékelés mentése és az összesítő frissítése együtt véglegesül vagy együtt gördül vissza.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReviewRatingAggregator {
+
+    private final MedicationRatingAggregateRepository aggregateRepository;
+
+    public static void validateRating(int rating) {
+        if (rating < MedicationRatingAggregate.MIN_RATING || rating > MedicationRatingAggregate.MAX_RATING) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Az értékelésnek 1 és 5 között kell lennie.");
+        }
+    }
+
+    @Transactional
+    public void reviewAdded(Integer itemId, int rating) {
+        aggregateRepository.applyDelta(itemId, rating, 1, rating, 1);
+    }
+
+    @Transactional
+    public void reviewRemoved(Integer itemId, int rating) {
+        if (rating < MedicationRatingAggregate.MIN_RATING || rating > MedicationRatingAggregate.MAX_RATING) {
+            return;
+        }
+        aggregateRepository.applyDelta(itemId, rating, -1, -rating, -1);
+    }
+
+    @Transactional
+    public void ratingChanged(Integer itemId, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        if (oldRating >= MedicationRatingAggregate.MIN_RATING && oldRating <= MedicationRatingAggregate.MAX_RATING) {
+            aggregateRepository.applyDelta(itemId, oldRating, 0, -oldRating, -1);
+            aggregateRepository.applyDelta(itemId, newRating, 0, newRating, 1);
+        } else {
+            // Korábbi, tartományon kívüli értékelés: eddig nem szerepelt az összesítőben
+            reviewAdded(itemId, newRating);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<MedicationRatingAggregate> find(Integer itemId) {
+        return aggregateRepository.findById(itemId);
+    }
+
+    /**
+     * Több gyógyszer összesítője egyetlen lekérdezéssel (listázáshoz).
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, MedicationRatingAggregate> findAll(Collection<Integer> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        return aggregateRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(MedicationRatingAggregate::getItemId, Function.identity()));
+    }
+}
@@ -2,6 +2,7 @@ package hu.project.MediWeb.modules.review.service;
 
 import hu.project.MediWeb.modules.review.dto.ReviewDTO;
 import hu.project.MediWeb.modules.review.dto.ReviewListResponse;
+import hu.project.MediWeb.modules.review.entity.MedicationRatingAggregate;
 import hu.project.MediWeb.modules.review.entity.Review;
 import hu.project.MediWeb.modules.review.entity.ReviewReport;
 import hu.project.MediWeb.modules.review.repository.ReviewRepository;
@@ -11,12 +12,18 @@ import hu.project.MediWeb.modules.user.service.UserService;
 import hu.project.MediWeb.modules.medication.entity.Medication;
 import hu.project.MediWeb.modules.medication.repository.MedicationRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,32 +34,40 @@ public class ReviewService {
     private final ReviewReportRepository reviewReportRepository;
     private final UserService userService;
     private final MedicationRepository medicationRepository;
+    private final ReviewRatingAggregator reviewRatingAggregator;
 
-    public ReviewListResponse getReviewListForItem(int itemId) {
-        List<Review> reviews = reviewRepository.findByItemId(itemId);
+    private static final String UNKNOWN_MEDICATION = "Ismeretlen gyógyszer";
+
+    @Transactional(readOnly = true)
+    public ReviewListResponse getReviewListForItem(int itemId, Pageable pageable, User currentUser) {
+        Pageable sorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id")));
+        Page<Review> reviews = reviewRepository.findByItemId(itemId, sorted);
+        String medicationName = resolveMedicationName(itemId);
         List<ReviewDTO> dtoList = reviews.stream()
-                .map(this::mapToDTO)
+                .map(review -> mapToDTO(review, medicationName))
                 .collect(Collectors.toList());
 
-        double averageRating = reviews.stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
-
-        Map<Integer, Long> ratingDistribution = reviews.stream()
-                .collect(Collectors.groupingBy(
-                        Review::getRating,
-                        Collectors.counting()
-                ));
+        Optional<MedicationRatingAggregate> aggregate = reviewRatingAggregator.find(itemId);
+        ReviewDTO ownReview = currentUser == null ? null : reviewRepository.findByItemIdAndUser(itemId, currentUser)
+                .map(review -> mapToDTO(review, medicationName))
+                .orElse(null);
 
         return ReviewListResponse.builder()
                 .reviews(dtoList)
-                .averageRating(averageRating)
-                .ratingDistribution(ratingDistribution)
+                .averageRating(aggregate.map(MedicationRatingAggregate::getAverageRating).orElse(0.0))
+                .ratingDistribution(aggregate.map(MedicationRatingAggregate::getRatingDistribution).orElse(Map.of()))
+                .totalReviews(reviews.getTotalElements())
+                .page(reviews.getNumber())
+                .size(reviews.getSize())
+                .totalPages(reviews.getTotalPages())
+                .ownReview(ownReview)
                 .build();
     }
 
+    @Transactional
     public ReviewDTO submitReview(int itemId, ReviewDTO dto, User user) {
+        ReviewRatingAggregator.validateRating(dto.getRating());
         Review review = Review.builder()
                 .itemId(itemId)
                 .user(user)
@@ -62,25 +77,39 @@ public class ReviewService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        Review saved = reviewRepository.save(review);
-        return mapToDTO(saved);
+        Review saved = reviewRepository.saveAndFlush(review);
+        reviewRatingAggregator.reviewAdded(itemId, saved.getRating());
+        return mapToDTO(saved, resolveMedicationName(itemId));
     }
 
+    @Transactional
     public ReviewDTO updateReview(int itemId, ReviewDTO dto, User user) {
+        ReviewRatingAggregator.validateRating(dto.getRating());
         Review review = reviewRepository.findByItemIdAndUser(itemId, user)
                 .orElseThrow(() -> new RuntimeException("Review not found"));
 
+        int previousRating = review.getRating();
         review.setRating(dto.getRating());
         review.setPositive(dto.getPositive());
         review.setNegative(dto.getNegative());
         review.setCreatedAt(LocalDateTime.now());
 
-        return mapToDTO(reviewRepository.save(review));
+        Review saved = reviewRepository.save(review);
+        reviewRatingAggregator.ratingChanged(itemId, previousRating, saved.getRating());
+        return mapToDTO(saved, resolveMedicationName(itemId));
     }
 
     public List<ReviewDTO> getReviewListForUser(User user) {
-        return reviewRepository.findByUser(user).stream()
-                .map(this::mapToDTO)
+        List<Review> reviews = reviewRepository.findByUser(user);
+        Map<Long, String> medicationNames = medicationRepository.findAllById(reviews.stream()
+                        .map(Review::getItemId)
+                        .filter(Objects::nonNull)
+                        .map(Long::valueOf)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Medication::getId, Medication::getName, (a, b) -> a));
+        return reviews.stream()
+                .map(review -> mapToDTO(review, review.getItemId() == null ? UNKNOWN_MEDICATION
+                        : medicationNames.getOrDefault(Long.valueOf(review.getItemId()), UNKNOWN_MEDICATION)))
                 .collect(Collectors.toList());
     }
 
@@ -114,14 +143,16 @@ public class ReviewService {
         reviewRepository.save(review);
     }
 
-    private ReviewDTO mapToDTO(Review review) {
-        String medicationName = "Ismeretlen gyógyszer";
-        if (review.getItemId() != null) {
-            medicationName = medicationRepository.findById(Long.valueOf(review.getItemId()))
-                    .map(Medication::getName)
-                    .orElse("Ismeretlen gyógyszer");
+    private String resolveMedicationName(Integer itemId) {
+        if (itemId == null) {
+            return UNKNOWN_MEDICATION;
         }
+        return medicationRepository.findById(Long.valueOf(itemId))
+                .map(Medication::getName)
+                .orElse(UNKNOWN_MEDICATION);
+    }
 
+    private ReviewDTO mapToDTO(Review review, String medicationName) {
         return ReviewDTO.builder()
                 .author(review.getUser().getName())
                 .userId(review.getUser().getId())
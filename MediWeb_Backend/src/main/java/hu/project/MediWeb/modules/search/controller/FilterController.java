@@ -5,22 +5,39 @@ import hu.project.MediWeb.modules.search.dto.FilterOptionName;
 import hu.project.MediWeb.modules.search.service.FilterService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/filters")
 public class FilterController {
 
+    private static final CacheControl FILTER_CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
     @Autowired
     private FilterService filterService;
 
     @GetMapping("/{name}") // dosage_form, active_substance, marketing_authorisation, dic_prescription
-    public List<FilterOptionName> getFilterOptions(@PathVariable String name) {
-        return filterService.getFilterOptions(name);
+    public ResponseEntity<List<FilterOptionName>> getFilterOptions(@PathVariable String name, WebRequest request) {
+        FilterService.CachedOptions cached = filterService.getCachedFilterOptions(name);
+        if (request.checkNotModified(cached.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(cached.etag())
+                    .cacheControl(FILTER_CACHE_CONTROL)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(cached.etag())
+                .cacheControl(FILTER_CACHE_CONTROL)
+                .body(cached.options());
     }
 }
@@ -0,0 +1,40 @@
+package hu.project.MediWeb.modules.search.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Az OGYÉI keresőoldal legördülő listáinak helyi tükre ("filter_options" tábla),
+ * így a szűrők akkor is kiszolgálhatók, ha az OGYÉI oldal nem elérhető.
+ */
+@Entity
+@Table(name = "filter_options",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"select_name", "option_value"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FilterOption {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "select_name", nullable = false, length = 100)
+    private String selectName;
+
+    @Column(name = "option_value", nullable = false)
+    private Integer optionValue;
+
+    @Column(nullable = false, length = 500)
+    private String name;
+
+    @Column(name = "position", nullable = false)
+    private Integer position;
+
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+}
@@ -0,0 +1,37 @@
+package hu.project.MediWeb.modules.search.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * A kulcsszó-népszerűség napi mentett állapota ("keyword_popularity" tábla).
+ * Soronként egy nap egy közelítő számlálója, a becslés hibakorlátjával együtt.
+ */
+@Entity
+@Table(name = "keyword_popularity",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"keyword", "bucket_date"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KeywordPopularity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 200)
+    private String keyword;
+
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @Column(name = "hit_count", nullable = false)
+    private long hitCount;
+
+    @Column(name = "error_bound", nullable = false)
+    private long errorBound;
+}
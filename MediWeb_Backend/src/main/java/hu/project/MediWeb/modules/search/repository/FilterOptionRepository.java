@@ -0,0 +1,15 @@
+package hu.project.MediWeb.modules.search.repository;
+
+import hu.project.MediWeb.modules.search.entity.FilterOption;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * A tükrözött OGYÉI szűrőopciók repository-ja.
+ */
+public interface FilterOptionRepository extends JpaRepository<FilterOption, Integer> {
+
+    List<FilterOption> findAllByOrderBySelectNameAscPositionAsc();
+}
@@ -0,0 +1,38 @@
+package hu.project.MediWeb.modules.search.repository;
+
+import hu.project.MediWeb.modules.search.entity.KeywordPopularity;
+import hu.project.MediWeb.modules.search.repository.projection.SearchKeywordProjection;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A napi kulcsszó-népszerűségi mentések repository-ja.
+ */
+public interface KeywordPopularityRepository extends JpaRepository<KeywordPopularity, Long> {
+
+    List<KeywordPopularity> findByBucketDate(LocalDate bucketDate);
+
+    @Query("SELECT k.keyword AS keyword, SUM(k.hitCount) AS searchCount " +
+           "FROM KeywordPopularity k " +
+           "WHERE k.bucketDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY k.keyword " +
+           "ORDER BY SUM(k.hitCount) DESC")
+    List<SearchKeywordProjection> sumByKeywordBetween(@Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate,
+                                                      Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM KeywordPopularity k WHERE k.bucketDate = :bucketDate")
+    int deleteByBucketDate(@Param("bucketDate") LocalDate bucketDate);
+
+    @Modifying
+    @Query("DELETE FROM KeywordPopularity k WHERE k.bucketDate < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDate cutoff);
+}
@@ -1,32 +1,255 @@
 package hu.project.MediWeb.modules.search.service;
 
 import hu.project.MediWeb.modules.search.dto.FilterOptionName;
+import hu.project.MediWeb.modules.search.entity.FilterOption;
+import hu.project.MediWeb.modules.search.repository.FilterOptionRepository;
+import hu.project.MediWeb.modules.search.service.OgyeiSessionManager.OgyeiSession;
 import hu.project.MediWeb.modules.search.util.FilterOptionExtractor;
 import hu.project.MediWeb.modules.search.util.OgyeiRequestHelper;
 import hu.project.MediWeb.modules.search.util.SearchUrlBuilder;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Az OGYÉI szűrőlisták kiszolgálása memóriából. Egyetlen oldalletöltésből
+ * az összes legördülő listát eltároljuk a "filter_options" táblában, a TTL
+ * lejárta után pedig háttérben frissítünk, így a kérések nem várnak az OGYÉI-re.
+ */
+@Slf4j
 @Service
 public class FilterService {
 
+    private final FilterOptionRepository filterOptionRepository;
+    private final OgyeiSessionManager sessionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean(false);
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "filter-options-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object loadLock = new Object();
+    private volatile FilterSnapshot snapshot;
+
+    public FilterService(FilterOptionRepository filterOptionRepository,
+                         OgyeiSessionManager sessionManager,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${filters.cache.ttl-hours:24}") long ttlHours) {
+        this.filterOptionRepository = filterOptionRepository;
+        this.sessionManager = sessionManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(Math.max(ttlHours, 1));
+    }
+
     public List<FilterOptionName> getFilterOptions(String selectName) {
+        return getCachedFilterOptions(selectName).options();
+    }
+
+    public CachedOptions getCachedFilterOptions(String selectName) {
+        FilterSnapshot current = currentSnapshot();
+        if (current.isStale(ttl)) {
+            triggerBackgroundRefresh();
+        }
+        List<FilterOptionName> options = current.options().getOrDefault(selectName, List.of());
+        String etag = current.etags().getOrDefault(selectName, FilterSnapshot.EMPTY_ETAG);
+        return new CachedOptions(options, etag);
+    }
+
+    @Scheduled(fixedDelayString = "${filters.cache.refresh-check-interval-ms:3600000}",
+            initialDelayString = "${filters.cache.refresh-initial-delay-ms:120000}")
+    public void refreshIfStale() {
+        FilterSnapshot current = snapshot;
+        if (current == null || current.isStale(ttl)) {
+            triggerBackgroundRefresh();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private FilterSnapshot currentSnapshot() {
+        FilterSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            FilterSnapshot persisted = loadPersistedSnapshot();
+            if (persisted != null) {
+                snapshot = persisted;
+                return persisted;
+            }
+            // Üres tükör: első alkalommal szinkronban kell letölteni
+            try {
+                return refreshFromRemote();
+            } catch (IOException e) {
+                throw new RuntimeException("Nem sikerült lekérni a szűrőopciókat", e);
+            }
+        }
+    }
+
+    private void triggerBackgroundRefresh() {
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            Map<String, String> sessionData = OgyeiRequestHelper.fetchSessionAndCsrfToken();
-            String phpsessid = sessionData.get("PHPSESSID");
-            String csrft = sessionData.get("csrft");
+            refreshExecutor.execute(() -> {
+                try {
+                    refreshFromRemote();
+                } catch (Exception e) {
+                    log.warn("[FILTERS] Háttérfrissítés sikertelen, a korábbi opciókat szolgáljuk ki: {}", e.getMessage());
+                } finally {
+                    refreshInProgress.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshInProgress.set(false);
+            log.warn("[FILTERS] Háttérfrissítés nem indítható: {}", e.getMessage());
+        }
+    }
+
+    private FilterSnapshot refreshFromRemote() throws IOException {
+        Document doc = fetchFilterPage();
+        Map<String, List<FilterOptionName>> options = FilterOptionExtractor.extractAllOptions(doc);
+        if (options.isEmpty()) {
+            throw new IOException("Az OGYÉI oldalon nem található szűrőlista");
+        }
 
-            String filterPageUrl = SearchUrlBuilder.buildFilterPageUrl(csrft);
-            Document doc = OgyeiRequestHelper.fetchSearchResultPage(filterPageUrl, phpsessid);
+        Instant fetchedAt = Instant.now();
+        persistSnapshot(options, fetchedAt);
+        FilterSnapshot refreshed = FilterSnapshot.of(options, fetchedAt);
+        snapshot = refreshed;
+        log.info("[FILTERS] {} szűrőlista frissítve az OGYÉI oldalról", options.size());
+        return refreshed;
+    }
 
-            return FilterOptionExtractor.extractOptions(doc, selectName);
+    private Document fetchFilterPage() throws IOException {
+        OgyeiSession session = sessionManager.acquire();
+        try {
+            Document doc = OgyeiRequestHelper.fetchSearchResultPage(SearchUrlBuilder.buildFilterPageUrl(session.csrft()), session.phpsessid());
+            if (!OgyeiRequestHelper.isSessionRejected(doc)) {
+                return doc;
+            }
         } catch (IOException e) {
-            throw new RuntimeException("Nem sikerült lekérni a(z) " + selectName + " opciókat", e);
+            if (!OgyeiRequestHelper.isSessionRejected(e)) {
+                throw e;
+            }
+        }
+
+        // Elutasított session: egyszer próbálkozunk újra friss sessionnel
+        sessionManager.invalidate(session);
+        OgyeiSession retrySession = sessionManager.acquire();
+        return OgyeiRequestHelper.fetchSearchResultPage(SearchUrlBuilder.buildFilterPageUrl(retrySession.csrft()), retrySession.phpsessid());
+    }
+
+    private void persistSnapshot(Map<String, List<FilterOptionName>> options, Instant fetchedAt) {
+        LocalDateTime fetchedAtLocal = LocalDateTime.ofInstant(fetchedAt, ZoneId.systemDefault());
+        List<FilterOption> entities = new ArrayList<>();
+        options.forEach((selectName, values) -> {
+            for (int i = 0; i < values.size(); i++) {
+                FilterOptionName option = values.get(i);
+                entities.add(FilterOption.builder()
+                        .selectName(selectName)
+                        .optionValue(option.getValue())
+                        .name(option.getName())
+                        .position(i)
+                        .fetchedAt(fetchedAtLocal)
+                        .build());
+            }
+        });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                filterOptionRepository.deleteAllInBatch();
+                filterOptionRepository.saveAll(entities);
+            });
+        } catch (Exception e) {
+            // A memóriabeli példány így is frissül, a tükör a következő körben pótolható
+            log.warn("[FILTERS] Szűrőopciók mentése sikertelen: {}", e.getMessage());
+        }
+    }
+
+    private FilterSnapshot loadPersistedSnapshot() {
+        List<FilterOption> rows;
+        try {
+            rows = filterOptionRepository.findAllByOrderBySelectNameAscPositionAsc();
+        } catch (Exception e) {
+            log.warn("[FILTERS] Tárolt szűrőopciók nem olvashatók: {}", e.getMessage());
+            return null;
+        }
+        if (rows.isEmpty()) {
+            return null;
+        }
+
+        Map<String, List<FilterOptionName>> options = new LinkedHashMap<>();
+        LocalDateTime oldest = null;
+        for (FilterOption row : rows) {
+            options.computeIfAbsent(row.getSelectName(), key -> new ArrayList<>())
+                    .add(new FilterOptionName(row.getOptionValue(), row.getName()));
+            if (oldest == null || row.getFetchedAt().isBefore(oldest)) {
+                oldest = row.getFetchedAt();
+            }
+        }
+        return FilterSnapshot.of(options, oldest.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    public record CachedOptions(List<FilterOptionName> options, String etag) {
+    }
+
+    private record FilterSnapshot(Map<String, List<FilterOptionName>> options,
+                                  Map<String, String> etags,
+                                  Instant fetchedAt) {
+
+        private static final String EMPTY_ETAG = "\"empty\"";
+
+        static FilterSnapshot of(Map<String, List<FilterOptionName>> options, Instant fetchedAt) {
+            Map<String, List<FilterOptionName>> copy = new LinkedHashMap<>();
+            Map<String, String> etags = new LinkedHashMap<>();
+            options.forEach((selectName, values) -> {
+                copy.put(selectName, List.copyOf(values));
+                etags.put(selectName, computeEtag(values));
+            });
+            return new FilterSnapshot(Collections.unmodifiableMap(copy), Collections.unmodifiableMap(etags), fetchedAt);
+        }
+
+        boolean isStale(Duration ttl) {
+            return fetchedAt.plus(ttl).isBefore(Instant.now());
+        }
+
+        private static String computeEtag(List<FilterOptionName> values) {
+            StringBuilder builder = new StringBuilder();
+            for (FilterOptionName option : values) {
+                builder.append(option.getValue()).append('=').append(option.getName()).append('\n');
+            }
+            return "\"" + DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
         }
     }
 }
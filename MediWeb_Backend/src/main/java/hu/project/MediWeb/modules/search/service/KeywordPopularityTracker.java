@@ -0,0 +1,251 @@
+package hu.project.MediWeb.modules.search.service;
+
+import hu.project.MediWeb.modules.search.entity.KeywordPopularity;
+import hu.project.MediWeb.modules.search.repository.KeywordPopularityRepository;
+import hu.project.MediWeb.modules.search.repository.projection.SearchKeywordProjection;
+import hu.project.MediWeb.modules.search.util.SpaceSavingSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A keresett kulcsszavak közelítő népszerűsége memóriában. A napi számlálást
+ * egy korlátos méretű Space-Saving összesítő végzi, amelyet időszakosan a
+ * "keyword_popularity" táblába mentünk. Az ablakos (pl. utolsó 7 nap) toplista
+ * a mai összesítőből és a korábbi napok mentett összegéből áll össze, így
+ * olvasáskor nem kell a teljes keresési előzményt csoportosítani.
+ */
+@Slf4j
+@Component
+public class KeywordPopularityTracker {
+
+    private static final int MAX_KEYWORD_LENGTH = 200;
+
+    private final KeywordPopularityRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int windowDays;
+    private final int retentionDays;
+    private final Object lock = new Object();
+
+    private boolean initialized;
+    private LocalDate currentDate;
+    private SpaceSavingSummary currentDay;
+    private boolean dirty;
+    private PendingDay pendingDay;
+    private boolean previousDaysStale;
+    private volatile Map<String, Long> previousDays = Map.of();
+
+    public KeywordPopularityTracker(KeywordPopularityRepository repository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${search.popularity.capacity:500}") int capacity,
+                                    @Value("${search.popularity.window-days:7}") int windowDays,
+                                    @Value("${search.popularity.retention-days:30}") int retentionDays) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = Math.max(capacity, 10);
+        this.windowDays = Math.max(windowDays, 1);
+        this.retentionDays = Math.max(retentionDays, this.windowDays);
+    }
+
+    public void record(String keyword) {
+        String normalized = normalize(keyword);
+        if (normalized == null) {
+            return;
+        }
+        synchronized (lock) {
+            ensureInitialized();
+            rollOverIfNeeded(LocalDate.now());
+            currentDay.offer(normalized);
+            dirty = true;
+        }
+    }
+
+    /**
+     * A beállított ablak (alapból az utolsó 7 nap) leggyakoribb kulcsszavai.
+     */
+    public List<KeywordCount> topKeywords(int limit) {
+        return topKeywords(windowDays, limit);
+    }
+
+    public List<KeywordCount> topKeywords(int days, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int window = Math.max(days, 1);
+        List<SpaceSavingSummary.Entry> today;
+        Map<String, Long> earlier;
+        synchronized (lock) {
+            ensureInitialized();
+            rollOverIfNeeded(LocalDate.now());
+            today = currentDay.entries();
+            earlier = window == windowDays ? previousDays : null;
+        }
+        if (earlier == null) {
+            earlier = loadPreviousDays(LocalDate.now(), window);
+        }
+
+        Map<String, Long> merged = new HashMap<>(earlier);
+        for (SpaceSavingSummary.Entry entry : today) {
+            merged.merge(entry.item(), entry.count(), Long::sum);
+        }
+        return merged.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> new KeywordCount(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${search.popularity.checkpoint-interval-ms:60000}",
+            initialDelayString = "${search.popularity.checkpoint-initial-delay-ms:60000}")
+    public void checkpoint() {
+        PendingDay finished;
+        PendingDay today = null;
+        boolean reloadPrevious;
+        synchronized (lock) {
+            ensureInitialized();
+            rollOverIfNeeded(LocalDate.now());
+            finished = pendingDay;
+            if (dirty) {
+                today = new PendingDay(currentDate, currentDay.entries());
+                dirty = false;
+            }
+            reloadPrevious = previousDaysStale;
+        }
+
+        try {
+            if (finished != null) {
+                persist(finished);
+                synchronized (lock) {
+                    if (pendingDay == finished) {
+                        pendingDay = null;
+                    }
+                }
+            }
+            if (today != null) {
+                persist(today);
+            }
+        } catch (Exception e) {
+            synchronized (lock) {
+                if (today != null && today.date().equals(currentDate)) {
+                    dirty = true;
+                }
+            }
+            log.warn("[SEARCH] Kulcsszó-népszerűség mentése sikertelen: {}", e.getMessage());
+            return;
+        }
+
+        if (reloadPrevious) {
+            Map<String, Long> reloaded = loadPreviousDays(LocalDate.now(), windowDays);
+            synchronized (lock) {
+                previousDays = reloaded;
+                previousDaysStale = false;
+            }
+        }
+    }
+
+    @Scheduled(cron = "${search.popularity.cleanup-cron:0 15 4 * * *}")
+    public void purgeExpiredBuckets() {
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        try {
+            Integer removed = transactionTemplate.execute(status -> repository.deleteOlderThan(cutoff));
+            log.info("[SEARCH] {} lejárt kulcsszó-népszerűségi sor törölve ({} előtt)", removed, cutoff);
+        } catch (Exception e) {
+            log.warn("[SEARCH] Lejárt kulcsszó-népszerűségi sorok törlése sikertelen: {}", e.getMessage());
+        }
+    }
+
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        currentDate = LocalDate.now();
+        currentDay = new SpaceSavingSummary(capacity);
+        try {
+            // Újraindítás után a mai nap mentett állapotából folytatjuk
+            for (KeywordPopularity row : repository.findByBucketDate(currentDate)) {
+                currentDay.restore(row.getKeyword(), row.getHitCount(), row.getErrorBound());
+            }
+            previousDays = loadPreviousDays(currentDate, windowDays);
+        } catch (Exception e) {
+            previousDaysStale = true;
+            log.warn("[SEARCH] Mentett kulcsszó-népszerűség nem olvasható: {}", e.getMessage());
+        }
+    }
+
+    private void rollOverIfNeeded(LocalDate today) {
+        if (today.equals(currentDate)) {
+            return;
+        }
+        List<SpaceSavingSummary.Entry> finished = currentDay.entries();
+        if (!finished.isEmpty()) {
+            pendingDay = new PendingDay(currentDate, finished);
+            // A lezárt nap azonnal bekerül az ablakba, a pontos összeg a következő mentéskor töltődik újra
+            Map<String, Long> merged = new HashMap<>(previousDays);
+            finished.forEach(entry -> merged.merge(entry.item(), entry.count(), Long::sum));
+            previousDays = merged;
+        }
+        previousDaysStale = true;
+        currentDate = today;
+        currentDay = new SpaceSavingSummary(capacity);
+        dirty = false;
+    }
+
+    private void persist(PendingDay day) {
+        List<KeywordPopularity> rows = new ArrayList<>(day.entries().size());
+        for (SpaceSavingSummary.Entry entry : day.entries()) {
+            rows.add(KeywordPopularity.builder()
+                    .keyword(entry.item())
+                    .bucketDate(day.date())
+                    .hitCount(entry.count())
+                    .errorBound(entry.error())
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.deleteByBucketDate(day.date());
+            repository.saveAll(rows);
+        });
+    }
+
+    private Map<String, Long> loadPreviousDays(LocalDate today, int days) {
+        if (days <= 1) {
+            return Map.of();
+        }
+        List<SearchKeywordProjection> rows = repository.sumByKeywordBetween(
+                today.minusDays(days - 1L), today.minusDays(1), PageRequest.of(0, capacity));
+        Map<String, Long> result = new HashMap<>();
+        for (SearchKeywordProjection row : rows) {
+            result.put(row.getKeyword(), row.getSearchCount());
+        }
+        return result;
+    }
+
+    static String normalize(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String normalized = keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return normalized.length() > MAX_KEYWORD_LENGTH ? normalized.substring(0, MAX_KEYWORD_LENGTH) : normalized;
+    }
+
+    public record KeywordCount(String keyword, long count) {
+    }
+
+    private record PendingDay(LocalDate date, List<SpaceSavingSummary.Entry> entries) {
+    }
+}
@@ -0,0 +1,193 @@
+package hu.project.MediWeb.modules.search.service;
+
+import hu.project.MediWeb.modules.search.util.OgyeiRequestHelper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kis méretű OGYÉI session (PHPSESSID + csrft) készlet. A kereséseknek így nem kell
+ * minden hívás előtt a teljes nyitóoldalt letölteniük; a lejárat előtt álló
+ * sessionöket háttérben cseréljük, a CSRF hibát adókat pedig azonnal eldobjuk.
+ */
+@Slf4j
+@Component
+public class OgyeiSessionManager {
+
+    private final ConcurrentLinkedDeque<OgyeiSession> pool = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean refillInProgress = new AtomicBoolean(false);
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ogyei-session-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int poolSize;
+    private final Duration maxAge;
+    private final Duration refreshAhead;
+    private final Duration idleTimeout;
+    private final int retryAttempts;
+    private volatile Instant lastAcquiredAt = Instant.EPOCH;
+
+    public OgyeiSessionManager(@Value("${ogyei.session.pool-size:2}") int poolSize,
+                               @Value("${ogyei.session.max-age-minutes:20}") long maxAgeMinutes,
+                               @Value("${ogyei.session.refresh-ahead-minutes:5}") long refreshAheadMinutes,
+                               @Value("${ogyei.session.idle-timeout-minutes:60}") long idleTimeoutMinutes,
+                               @Value("${ogyei.session.retry-attempts:3}") int retryAttempts) {
+        this.poolSize = Math.max(poolSize, 1);
+        this.maxAge = Duration.ofMinutes(Math.max(maxAgeMinutes, 1));
+        this.refreshAhead = Duration.ofMinutes(Math.max(Math.min(refreshAheadMinutes, maxAgeMinutes - 1), 0));
+        this.idleTimeout = Duration.ofMinutes(Math.max(idleTimeoutMinutes, 1));
+        this.retryAttempts = Math.max(retryAttempts, 0);
+    }
+
+    /**
+     * Érvényes sessiont ad vissza a készletből, szükség esetén szinkronban nyit újat.
+     * A sessionök megoszthatók, ezért a visszaadott elem a készletben marad.
+     */
+    public OgyeiSession acquire() throws IOException {
+        lastAcquiredAt = Instant.now();
+        Instant now = Instant.now();
+        for (int i = 0, size = pool.size(); i < size; i++) {
+            OgyeiSession session = pool.pollFirst();
+            if (session == null) {
+                break;
+            }
+            if (session.isExpired(maxAge, now)) {
+                continue;
+            }
+            pool.offerLast(session);
+            if (pool.size() < poolSize || session.isExpired(maxAge.minus(refreshAhead), now)) {
+                triggerRefill();
+            }
+            return session;
+        }
+
+        OgyeiSession fresh = openSessionWithRetry();
+        pool.offerLast(fresh);
+        if (pool.size() < poolSize) {
+            triggerRefill();
+        }
+        return fresh;
+    }
+
+    /**
+     * Az OGYÉI által elutasított (lejárt vagy CSRF hibás) sessiont kiveszi a készletből.
+     */
+    public void invalidate(OgyeiSession session) {
+        if (session == null) {
+            return;
+        }
+        if (pool.remove(session)) {
+            log.info("[OGYEI-SESSION] Elutasított session eldobva, új session nyitása háttérben");
+        }
+        triggerRefill();
+    }
+
+    @Scheduled(fixedDelayString = "${ogyei.session.maintenance-interval-ms:60000}",
+            initialDelayString = "${ogyei.session.maintenance-interval-ms:60000}")
+    public void maintainPool() {
+        Instant now = Instant.now();
+        pool.removeIf(session -> session.isExpired(maxAge, now));
+        if (lastAcquiredAt.plus(idleTimeout).isBefore(now)) {
+            // Használaton kívül nem terheljük az OGYÉI oldalt
+            return;
+        }
+        boolean needsRotation = pool.stream().anyMatch(session -> session.isExpired(maxAge.minus(refreshAhead), now));
+        if (needsRotation || pool.size() < poolSize) {
+            triggerRefill();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+    }
+
+    private void triggerRefill() {
+        if (!refillInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refillExecutor.execute(() -> {
+                try {
+                    refill();
+                } catch (Exception e) {
+                    log.warn("[OGYEI-SESSION] Session készlet feltöltése sikertelen: {}", e.getMessage());
+                } finally {
+                    refillInProgress.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refillInProgress.set(false);
+            log.warn("[OGYEI-SESSION] Session feltöltés nem indítható: {}", e.getMessage());
+        }
+    }
+
+    private void refill() throws IOException {
+        Duration rotateAfter = maxAge.minus(refreshAhead);
+        Instant now = Instant.now();
+        pool.removeIf(session -> session.isExpired(maxAge, now));
+
+        long freshCount = pool.stream().filter(session -> !session.isExpired(rotateAfter, now)).count();
+        while (freshCount < poolSize) {
+            pool.offerLast(openSession());
+            freshCount++;
+        }
+        // A hamarosan lejáró sessionöket csak az utódok megnyitása után dobjuk el
+        pool.removeIf(session -> session.isExpired(rotateAfter, now));
+    }
+
+    private OgyeiSession openSessionWithRetry() throws IOException {
+        int attempts = retryAttempts + 1;
+        IOException lastException = null;
+
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            try {
+                if (attempt > 1) {
+                    log.warn("Retrying OGYEI session fetch (attempt={}/{})", attempt, attempts);
+                }
+                return openSession();
+            } catch (IOException ex) {
+                lastException = ex;
+                log.error("Failed to fetch OGYEI session (attempt={}/{}): {}", attempt, attempts, ex.getMessage());
+                if (attempt >= attempts) {
+                    break;
+                }
+                sleepQuietly(Math.min(500L * attempt, Duration.ofSeconds(10).toMillis()));
+            }
+        }
+
+        throw lastException != null ? lastException : new IOException("Nem sikerült az OGYEI session lekérése több próbálkozás után");
+    }
+
+    private OgyeiSession openSession() throws IOException {
+        Map<String, String> sessionData = OgyeiRequestHelper.fetchSessionAndCsrfToken();
+        return new OgyeiSession(sessionData.get("PHPSESSID"), sessionData.get("csrft"), Instant.now());
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(Math.max(0L, millis));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public record OgyeiSession(String phpsessid, String csrft, Instant createdAt) {
+
+        boolean isExpired(Duration age, Instant now) {
+            return createdAt.plus(age).isBefore(now);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package hu.project.MediWeb.modules.search.service;
+
+import hu.project.MediWeb.modules.search.dto.MedicationSearchRequest;
+import hu.project.MediWeb.modules.search.dto.MedicationSearchResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Az élő OGYÉI keresések eredményeinek gyorsítótára. A kulcs a normalizált
+ * keresési feltétel; a bejegyzések TTL után lejárnak, a méretkorlát felett
+ * a legrégebben használt kerül ki. Az azonos kulcsú párhuzamos kérések egyetlen
+ * futó lekérdezésre várnak.
+ */
+@Component
+public class SearchResultCache {
+
+    private final Map<String, CacheEntry> entries;
+    private final Map<String, CompletableFuture<List<MedicationSearchResult>>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter coalescedCounter;
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${search.cache.max-entries:500}") int maxEntries,
+                             @Value("${search.cache.ttl-minutes:30}") long ttlMinutes) {
+        int capacity = Math.max(maxEntries, 1);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.ttl = Duration.ofMinutes(Math.max(ttlMinutes, 1));
+        this.hitCounter = Counter.builder("mediweb.search.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("mediweb.search.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.coalescedCounter = Counter.builder("mediweb.search.cache.requests").tag("result", "coalesced").register(meterRegistry);
+        Gauge.builder("mediweb.search.cache.size", this, SearchResultCache::size).register(meterRegistry);
+    }
+
+    public List<MedicationSearchResult> getOrLoad(MedicationSearchRequest request,
+                                                  Supplier<List<MedicationSearchResult>> loader) {
+        String key = normalizeKey(request);
+
+        List<MedicationSearchResult> cached = lookup(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+
+        CompletableFuture<List<MedicationSearchResult>> ownFuture = new CompletableFuture<>();
+        CompletableFuture<List<MedicationSearchResult>> existing = inFlight.putIfAbsent(key, ownFuture);
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+
+        try {
+            // Közben egy másik szál már eltárolhatta az eredményt
+            List<MedicationSearchResult> stored = lookup(key);
+            if (stored != null) {
+                hitCounter.increment();
+                ownFuture.complete(stored);
+                return stored;
+            }
+
+            missCounter.increment();
+            List<MedicationSearchResult> loaded = List.copyOf(loader.get());
+            store(key, loaded);
+            ownFuture.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            ownFuture.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ownFuture);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    static String normalizeKey(MedicationSearchRequest request) {
+        StringBuilder key = new StringBuilder(128);
+        appendText(key, request.getFreetext());
+        appendNumber(key, request.getDosageForm());
+        appendText(key, request.getAtcCode());
+        appendNumber(key, request.getActiveSubstance());
+        appendNumber(key, request.getMarketingAuthorisation());
+        appendNumber(key, request.getDicPrescription());
+        appendText(key, request.getRegistrationNumber());
+        appendText(key, request.getAuthorisationDateFrom());
+        appendText(key, request.getAuthorisationDateTo());
+        appendText(key, request.getRevokeDateFrom());
+        appendText(key, request.getRevokeDateTo());
+        appendFlag(key, request.getLactose());
+        appendFlag(key, request.getGluten());
+        appendFlag(key, request.getBenzoate());
+        appendFlag(key, request.getHasFinalSample());
+        appendFlag(key, request.getHasDefectedForm());
+        appendFlag(key, request.getFokozottFelugyelet());
+        appendFlag(key, request.getKpBesorolas());
+        return key.toString();
+    }
+
+    private List<MedicationSearchResult> lookup(String key) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(Instant.now())) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.results();
+        }
+    }
+
+    private void store(String key, List<MedicationSearchResult> results) {
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(results, Instant.now().plus(ttl)));
+        }
+    }
+
+    private List<MedicationSearchResult> await(CompletableFuture<List<MedicationSearchResult>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static void appendText(StringBuilder key, String value) {
+        String normalized = value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        key.append(normalized).append('|');
+    }
+
+    private static void appendNumber(StringBuilder key, Integer value) {
+        key.append(value == null ? 0 : value).append('|');
+    }
+
+    private static void appendFlag(StringBuilder key, Boolean value) {
+        key.append(Boolean.TRUE.equals(value) ? '1' : '0').append('|');
+    }
+
+    private record CacheEntry(List<MedicationSearchResult> results, Instant expiresAt) {
+
+        boolean isExpired(Instant now) {
+            return expiresAt.isBefore(now);
+        }
+    }
+}
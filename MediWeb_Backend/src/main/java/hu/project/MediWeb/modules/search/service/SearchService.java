@@ -2,9 +2,12 @@ package hu.project.MediWeb.modules.search.service;
 
 import hu.project.MediWeb.modules.search.dto.MedicationSearchRequest;
 import hu.project.MediWeb.modules.search.dto.MedicationSearchResult;
+import hu.project.MediWeb.modules.search.service.OgyeiSessionManager.OgyeiSession;
 import hu.project.MediWeb.modules.search.util.MedicationParser;
 import hu.project.MediWeb.modules.search.util.OgyeiRequestHelper;
 import hu.project.MediWeb.modules.search.util.SearchUrlBuilder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -18,8 +21,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
@@ -29,9 +32,11 @@ import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class SearchService {
 
     private static final int MAX_RESULTS = 100;
@@ -39,6 +44,8 @@ public class SearchService {
     private static final int MAX_FULL_SCAN_PAGES = 1200; // ~24k items safeguard
     private static final int DISCOVERY_CHUNK_SIZE = 1000;
     private static final Pattern ITEM_ID_PATTERN = Pattern.compile("item=(\\d+)");
+    private static final int MAX_INTERACTIVE_PAGES = MAX_RESULTS / PAGE_SIZE;
+    private static final int INTERACTIVE_PAGE_PARALLELISM = MAX_INTERACTIVE_PAGES - 1;
 
     @Value("${medication.sync.discovery-delay-ms:1000}")
     private long discoveryDelayMs;
@@ -49,21 +56,44 @@ public class SearchService {
     @Value("${medication.sync.discovery-parallelism:8}")
     private int discoveryParallelism;
 
+    @Value("${search.parallel-page-fetch:true}")
+    private boolean parallelPageFetch;
+
+    private final ExecutorService interactivePageExecutor = Executors.newFixedThreadPool(INTERACTIVE_PAGE_PARALLELISM, runnable -> {
+        Thread thread = new Thread(runnable, "ogyei-search-page");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OgyeiSessionManager sessionManager;
+    private final SearchResultCache searchResultCache;
+
     public List<MedicationSearchResult> searchMedications(MedicationSearchRequest params) {
-        try {
-            Map<String, String> sessionData = fetchSessionWithRetry();
-            String phpsessid = sessionData.get("PHPSESSID");
-            String csrft = sessionData.get("csrft");
+        return searchResultCache.getOrLoad(params, () -> fetchSearchResults(params));
+    }
 
-            List<MedicationSearchResult> allResults = new ArrayList<>();
+    private List<MedicationSearchResult> fetchSearchResults(MedicationSearchRequest params) {
+        try {
+            AtomicReference<OgyeiSession> sessionRef = new AtomicReference<>(sessionManager.acquire());
 
-            for (int offset = 0; offset < MAX_RESULTS; offset += PAGE_SIZE) {
-                String url = SearchUrlBuilder.buildSearchUrl(csrft, params, offset);
-                Document doc = OgyeiRequestHelper.fetchSearchResultPage(url, phpsessid);
+            Document firstPage = fetchPageWithRetry(params, 0, 1, sessionRef);
+            List<Elements> pages = new ArrayList<>();
+            Elements firstRows = firstPage.select("div.table__line.line");
+            pages.add(firstRows);
 
-                Elements rows = doc.select("div.table__line.line");
-                if (rows.isEmpty()) break;
+            if (firstRows.size() >= PAGE_SIZE) {
+                OptionalInt total = MedicationParser.parseTotalResultCount(firstPage);
+                if (parallelPageFetch && total.isPresent()) {
+                    pages.addAll(fetchRemainingPagesInParallel(params, remainingPagesFor(total.getAsInt()), sessionRef));
+                }
+                // Ismeretlen vagy alábecsült találatszámnál üres vagy nem teli oldalig lapozunk tovább
+                if (pages.size() < MAX_INTERACTIVE_PAGES && pages.get(pages.size() - 1).size() >= PAGE_SIZE) {
+                    pages.addAll(fetchPagesSequentially(params, pages.size(), sessionRef));
+                }
+            }
 
+            List<MedicationSearchResult> allResults = new ArrayList<>();
+            for (Elements rows : pages) {
                 for (Element row : rows) {
                     Optional<MedicationSearchResult> result = MedicationParser.parseRow(row);
                     result.ifPresent(allResults::add);
@@ -81,6 +111,91 @@ public class SearchService {
         }
     }
 
+    /**
+     * Az első oldal találatszáma alapján megadja, hány további oldal kell még.
+     */
+    private int remainingPagesFor(int totalResults) {
+        int neededPages = (Math.min(totalResults, MAX_RESULTS) + PAGE_SIZE - 1) / PAGE_SIZE;
+        return Math.max(0, Math.min(neededPages - 1, MAX_INTERACTIVE_PAGES - 1));
+    }
+
+    /**
+     * A megadott (nullától számolt) oldaltól kezdve lapoz az első üres vagy nem teli oldalig.
+     */
+    private List<Elements> fetchPagesSequentially(MedicationSearchRequest params,
+                                                  int fromPage,
+                                                  AtomicReference<OgyeiSession> sessionRef) throws IOException {
+        List<Elements> pages = new ArrayList<>();
+        for (int page = fromPage; page < MAX_INTERACTIVE_PAGES; page++) {
+            Elements rows = fetchPageWithRetry(params, page * PAGE_SIZE, page + 1, sessionRef).select("div.table__line.line");
+            if (rows.isEmpty()) {
+                break;
+            }
+            pages.add(rows);
+            if (rows.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return pages;
+    }
+
+    private List<Elements> fetchRemainingPagesInParallel(MedicationSearchRequest params,
+                                                         int remainingPages,
+                                                         AtomicReference<OgyeiSession> sessionRef) throws IOException {
+        List<Future<Elements>> futures = new ArrayList<>(remainingPages);
+        for (int page = 1; page <= remainingPages; page++) {
+            final int offset = page * PAGE_SIZE;
+            final int pageNumber = page + 1;
+            futures.add(interactivePageExecutor.submit(() -> {
+                try {
+                    return fetchPageWithRetry(params, offset, pageNumber, sessionRef).select("div.table__line.line");
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }));
+        }
+
+        List<Elements> pages = new ArrayList<>(remainingPages);
+        try {
+            for (Future<Elements> future : futures) {
+                Elements rows = getPageRows(future);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                pages.add(rows);
+                if (rows.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return pages;
+    }
+
+    private Elements getPageRows(Future<Elements> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Az OGYEI lekérés megszakadt", ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException runtime && runtime.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Ismeretlen hiba az OGYEI oldal feldolgozása közben", cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        interactivePageExecutor.shutdownNow();
+    }
+
     public LinkedHashSet<Long> fetchAllMedicationIds() {
         return fetchAllMedicationIds(null, null, null);
     }
@@ -97,9 +212,7 @@ public class SearchService {
                                                      Integer limit,
                                                      Set<Long> knownExistingIds) {
         try {
-            Map<String, String> sessionData = fetchSessionWithRetry();
-            String phpsessid = sessionData.get("PHPSESSID");
-            String csrft = sessionData.get("csrft");
+            AtomicReference<OgyeiSession> sessionRef = new AtomicReference<>(sessionManager.acquire());
 
             LinkedHashSet<Long> identifiers = new LinkedHashSet<>();
             int effectiveLimit = (limit != null && limit > 0) ? limit : -1;
@@ -130,7 +243,7 @@ public class SearchService {
                         }
                         final int pageOffset = offset;
                         final int pageNumber = (offset / PAGE_SIZE) + 1;
-                        completionService.submit(() -> fetchIdsForPage(request, csrft, phpsessid, pageOffset, pageNumber));
+                        completionService.submit(() -> fetchIdsForPage(request, sessionRef, pageOffset, pageNumber));
                         submittedTasks++;
                     }
 
@@ -247,49 +360,46 @@ public class SearchService {
         }
     }
 
-    private Map<String, String> fetchSessionWithRetry() throws IOException {
+    private Document fetchPageWithRetry(MedicationSearchRequest request,
+                                        int offset,
+                                        int pageNumber,
+                                        AtomicReference<OgyeiSession> sessionRef) throws IOException {
         int attempts = Math.max(discoveryRetryAttempts, 0) + 1;
         IOException lastException = null;
 
         for (int attempt = 1; attempt <= attempts; attempt++) {
+            OgyeiSession session = sessionRef.get();
             try {
                 if (attempt > 1) {
-                    log.warn("Retrying OGYEI session fetch (attempt={}/{})", attempt, attempts);
+                    log.warn("Retrying OGYEI page fetch (page={}, attempt={}/{})", pageNumber, attempt, attempts);
                 }
-                return OgyeiRequestHelper.fetchSessionAndCsrfToken();
+                String url = SearchUrlBuilder.buildSearchUrl(session.csrft(), request, offset);
+                Document doc = OgyeiRequestHelper.fetchSearchResultPage(url, session.phpsessid());
+                if (!OgyeiRequestHelper.isSessionRejected(doc)) {
+                    return doc;
+                }
+                lastException = new IOException("Az OGYEI elutasította a sessiont a(z) " + pageNumber + ". oldalon");
+                rotateSession(sessionRef, session);
             } catch (IOException ex) {
                 lastException = ex;
-                log.error("Failed to fetch OGYEI session (attempt={}/{}): {}", attempt, attempts, ex.getMessage());
-                if (attempt >= attempts) {
-                    break;
+                if (OgyeiRequestHelper.isSessionRejected(ex)) {
+                    rotateSession(sessionRef, session);
                 }
-                applyRetryBackoff(attempt);
             }
+            if (attempt >= attempts) {
+                break;
+            }
+            applyRetryBackoff(attempt);
         }
 
-        throw lastException != null ? lastException : new IOException("Nem sikerült az OGYEI session lekérése több próbálkozás után");
+        throw lastException != null ? lastException : new IOException("Ismeretlen hiba a(z) " + pageNumber + ". oldal lekérésekor.");
     }
 
-    private Document fetchPageWithRetry(String url, String phpsessid, int pageNumber) throws IOException {
-        int attempts = Math.max(discoveryRetryAttempts, 0) + 1;
-        IOException lastException = null;
-
-        for (int attempt = 1; attempt <= attempts; attempt++) {
-            try {
-                if (attempt > 1) {
-                    log.warn("Retrying OGYEI page fetch (page={}, attempt={}/{})", pageNumber, attempt, attempts);
-                }
-                return OgyeiRequestHelper.fetchSearchResultPage(url, phpsessid);
-            } catch (IOException ex) {
-                lastException = ex;
-                if (attempt >= attempts) {
-                    break;
-                }
-                applyRetryBackoff(attempt);
-            }
+    private void rotateSession(AtomicReference<OgyeiSession> sessionRef, OgyeiSession rejected) throws IOException {
+        sessionManager.invalidate(rejected);
+        if (sessionRef.get() == rejected) {
+            sessionRef.compareAndSet(rejected, sessionManager.acquire());
         }
-
-        throw lastException != null ? lastException : new IOException("Ismeretlen hiba a(z) " + pageNumber + ". oldal lekérésekor.");
     }
 
     private void applyDiscoveryDelay() {
@@ -314,13 +424,11 @@ public class SearchService {
     }
 
     private PageFetchResult fetchIdsForPage(MedicationSearchRequest request,
-                                            String csrft,
-                                            String phpsessid,
+                                            AtomicReference<OgyeiSession> sessionRef,
                                             int offset,
                                             int pageNumber) {
         try {
-            String url = SearchUrlBuilder.buildSearchUrl(csrft, request, offset);
-            Document doc = fetchPageWithRetry(url, phpsessid, pageNumber);
+            Document doc = fetchPageWithRetry(request, offset, pageNumber, sessionRef);
             Elements rows = doc.select("div.table__line.line");
 
             if (rows.isEmpty()) {
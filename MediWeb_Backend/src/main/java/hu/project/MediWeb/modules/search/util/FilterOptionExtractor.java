@@ -7,7 +7,9 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FilterOptionExtractor {
 
@@ -29,4 +31,39 @@ public class FilterOptionExtractor {
         }
         return options;
     }
+
+    /**
+     * Egyetlen letöltött oldalból kigyűjti az összes számértékű legördülő listát,
+     * select név szerint, az oldalon szereplő sorrendben.
+     */
+    public static Map<String, List<FilterOptionName>> extractAllOptions(Document doc) {
+        Map<String, List<FilterOptionName>> result = new LinkedHashMap<>();
+
+        Elements selects = doc.select("select[name]");
+        for (Element selectElement : selects) {
+            String selectName = selectElement.attr("name").trim();
+            if (selectName.isEmpty() || result.containsKey(selectName)) {
+                continue;
+            }
+
+            List<FilterOptionName> options = new ArrayList<>();
+            for (Element option : selectElement.select("option")) {
+                String rawValue = option.attr("value").trim();
+                String label = option.text().trim();
+                if (label.isEmpty() || rawValue.isEmpty()) {
+                    continue;
+                }
+                try {
+                    options.add(new FilterOptionName(Integer.parseInt(rawValue), label));
+                } catch (NumberFormatException ignored) {
+                    // Nem numerikus értékű listák (pl. rendezés) nem szűrők
+                }
+            }
+
+            if (!options.isEmpty()) {
+                result.put(selectName, options);
+            }
+        }
+        return result;
+    }
 }
@@ -1,13 +1,24 @@
 package hu.project.MediWeb.modules.search.util;
 
 import hu.project.MediWeb.modules.search.dto.MedicationSearchResult;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class MedicationParser {
 
+    // Egyetlen elem saját szövegének elején, szabályos ezres tagolással: szomszédos cellák számai nem olvadhatnak össze
+    private static final Pattern TOTAL_RESULTS_PATTERN = Pattern.compile(
+            "^\\s*(?:összesen\\s*:?\\s*)?(\\d{1,3}(?:[ .\\u00a0]\\d{3})+|\\d+)\\s*találat\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
     public static Optional<MedicationSearchResult> parseRow(Element row) {
         Elements cols = row.select("div.cell");
         if (cols.size() < 5) return Optional.empty();
@@ -32,4 +43,24 @@ public class MedicationParser {
 
         return Optional.of(result);
     }
+
+    /**
+     * A találati oldal "N találat" feliratából kiolvassa az összes találat számát.
+     * Ha nincs ilyen felirat, vagy több, egymásnak ellentmondó is van, üres értéket ad.
+     */
+    public static OptionalInt parseTotalResultCount(Document doc) {
+        Set<String> counts = doc.getElementsMatchingOwnText(TOTAL_RESULTS_PATTERN).stream()
+                .map(element -> TOTAL_RESULTS_PATTERN.matcher(element.ownText()))
+                .filter(Matcher::find)
+                .map(matcher -> matcher.group(1).replaceAll("\\D", ""))
+                .collect(Collectors.toSet());
+        if (counts.size() != 1) {
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(Integer.parseInt(counts.iterator().next()));
+        } catch (NumberFormatException ex) {
+            return OptionalInt.empty();
+        }
+    }
 }
@@ -1,12 +1,14 @@
 package hu.project.MediWeb.modules.search.util;
 
 import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 public class OgyeiRequestHelper {
@@ -79,4 +81,26 @@ public class OgyeiRequestHelper {
         return response.parse();
     }
 
+    /**
+     * Lejárt session vagy hibás csrft esetén az OGYÉI 401/403/419 státuszt ad vissza.
+     */
+    public static boolean isSessionRejected(IOException ex) {
+        if (ex instanceof HttpStatusException statusException) {
+            int status = statusException.getStatusCode();
+            return status == 401 || status == 403 || status == 419;
+        }
+        return false;
+    }
+
+    /**
+     * Egyes esetekben 200-as válaszban, hibaüzenettel jelzi az OGYÉI a CSRF token elutasítását.
+     */
+    public static boolean isSessionRejected(Document doc) {
+        if (doc == null || doc.selectFirst("div.table__line") != null) {
+            return false;
+        }
+        String text = doc.text().toLowerCase(Locale.ROOT);
+        return text.contains("csrf") || text.contains("érvénytelen token") || text.contains("lejárt munkamenet");
+    }
+
 }
@@ -0,0 +1,102 @@
+package hu.project.MediWeb.modules.search.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving algoritmus a leggyakoribb elemek közelítő számlálására, legfeljebb
+ * {@code capacity} számlálóval. Telített állapotban az új elem a legkisebb
+ * számláló helyét veszi át; a becslés felülről közelít, a hibát az {@code error}
+ * mező korlátozza. Nem szálbiztos, a hívónak kell szinkronizálnia.
+ */
+public class SpaceSavingSummary {
+
+    private static final Comparator<Entry> BY_COUNT = Comparator
+            .comparingLong(Entry::count)
+            .thenComparing(Entry::item);
+
+    private final int capacity;
+    private final Map<String, Entry> counters = new HashMap<>();
+    private final TreeSet<Entry> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSavingSummary(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    public void offer(String item) {
+        offer(item, 1);
+    }
+
+    public void offer(String item, long increment) {
+        if (item == null || increment <= 0) {
+            return;
+        }
+        Entry existing = counters.get(item);
+        if (existing != null) {
+            replace(existing, new Entry(item, existing.count() + increment, existing.error()));
+            return;
+        }
+        if (counters.size() < capacity) {
+            put(new Entry(item, increment, 0));
+            return;
+        }
+        Entry min = byCount.pollFirst();
+        counters.remove(min.item());
+        put(new Entry(item, min.count() + increment, min.count()));
+    }
+
+    /**
+     * Korábban mentett számláló visszatöltése; telített állapotban csak akkor
+     * kerül be, ha nagyobb a jelenlegi minimumnál.
+     */
+    public void restore(String item, long count, long error) {
+        if (item == null || count <= 0 || counters.containsKey(item)) {
+            return;
+        }
+        if (counters.size() >= capacity) {
+            Entry min = byCount.first();
+            if (min.count() >= count) {
+                return;
+            }
+            byCount.pollFirst();
+            counters.remove(min.item());
+        }
+        put(new Entry(item, count, Math.min(Math.max(error, 0), count)));
+    }
+
+    public List<Entry> top(int limit) {
+        int size = Math.min(Math.max(limit, 0), byCount.size());
+        List<Entry> result = new ArrayList<>(size);
+        Iterator<Entry> iterator = byCount.descendingIterator();
+        while (iterator.hasNext() && result.size() < size) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    public List<Entry> entries() {
+        return top(byCount.size());
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    private void replace(Entry previous, Entry updated) {
+        byCount.remove(previous);
+        put(updated);
+    }
+
+    private void put(Entry entry) {
+        counters.put(entry.item(), entry);
+        byCount.add(entry);
+    }
+
+    public record Entry(String item, long count, long error) {
+    }
+}
@@ -4,6 +4,7 @@ import hu.project.MediWeb.modules.statistic.dto.CategoryStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.dto.ComplianceStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.dto.MissedDoseStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.dto.PeakIntakeTimesResponse;
+import hu.project.MediWeb.modules.statistic.dto.StatisticsOverviewResponse;
 import hu.project.MediWeb.modules.statistic.dto.TrendStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.entity.Statistic;
 import hu.project.MediWeb.modules.statistic.service.StatisticService;
@@ -100,6 +101,22 @@ public class StatisticController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/statistics/overview
+     * A statisztika képernyő mind az öt blokkja egyetlen lekérdezésből.
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<StatisticsOverviewResponse> getStatisticsOverview(@RequestParam(value = "period", required = false) String periodParam) {
+        User user = getCurrentUser();
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        StatisticsPeriod period = StatisticsPeriod.fromParam(periodParam);
+        StatisticsOverviewResponse response = statisticsAggregationService.getStatisticsOverview(user, period);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * GET /api/statistics
      * Az összes statisztika lekérése.
@@ -0,0 +1,10 @@
+package hu.project.MediWeb.modules.statistic.dto;
+
+public record StatisticsOverviewResponse(
+        ComplianceStatisticsResponse compliance,
+        TrendStatisticsResponse trends,
+        CategoryStatisticsResponse categories,
+        MissedDoseStatisticsResponse missedDoses,
+        PeakIntakeTimesResponse peakTimes
+) {
+}
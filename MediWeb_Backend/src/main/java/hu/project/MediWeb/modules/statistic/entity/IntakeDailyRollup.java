@@ -0,0 +1,55 @@
+package hu.project.MediWeb.modules.statistic.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+
+/**
+ * Napi bevételi összesítő ("intake_daily_rollup" tábla) felhasználó,
+ * profil-gyógyszer és nap szerint. A statisztikák ebből olvasnak, így nem kell
+ * minden lekérésnél a teljes bevételi naplót betölteni.
+ */
+@Entity
+@Table(name = "intake_daily_rollup", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"profile_medication_id", "rollup_date"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IntakeDailyRollup {
+
+    public static final int HOURS_PER_DAY = 24;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "profile_medication_id", nullable = false)
+    private Long profileMedicationId;
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    // Az ATC kód első betűje (anatómiai főcsoport), null ha ismeretlen
+    @Column(name = "atc_group", length = 1)
+    private String atcGroup;
+
+    @Column(name = "taken_count", nullable = false)
+    private int takenCount;
+
+    @Column(name = "missed_count", nullable = false)
+    private int missedCount;
+
+    // Óránkénti (0-23) bejegyzésszám az ütemezett bevételi időpont alapján
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "hour_histogram", nullable = false, columnDefinition = "integer[]")
+    private int[] hourHistogram;
+}
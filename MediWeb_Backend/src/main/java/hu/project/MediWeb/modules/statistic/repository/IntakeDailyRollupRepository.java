@@ -0,0 +1,43 @@
+package hu.project.MediWeb.modules.statistic.repository;
+
+import hu.project.MediWeb.modules.statistic.entity.IntakeDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface IntakeDailyRollupRepository extends JpaRepository<IntakeDailyRollup, Long> {
+
+    List<IntakeDailyRollup> findByUserIdAndRollupDateBetweenOrderByRollupDateAsc(
+            Long userId,
+            LocalDate startDate,
+            LocalDate endDate
+    );
+
+    /**
+     * Atomikusan hozzáadja a változást a napi összesítőhöz, szükség esetén létrehozva a sort.
+     * A hourIndex 1-alapú (PostgreSQL tömbindex).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO intake_daily_rollup " +
+            "(user_id, profile_medication_id, rollup_date, atc_group, taken_count, missed_count, hour_histogram) " +
+            "VALUES (:userId, :profileMedicationId, :rollupDate, :atcGroup, GREATEST(:takenDelta, 0), GREATEST(:missedDelta, 0), " +
+            "(SELECT array_agg(CASE WHEN h = :hourIndex THEN GREATEST(:hourDelta, 0) ELSE 0 END ORDER BY h) FROM generate_series(1, 24) h)) " +
+            "ON CONFLICT (profile_medication_id, rollup_date) DO UPDATE SET " +
+            "atc_group = EXCLUDED.atc_group, " +
+            "taken_count = GREATEST(intake_daily_rollup.taken_count + :takenDelta, 0), " +
+            "missed_count = GREATEST(intake_daily_rollup.missed_count + :missedDelta, 0), " +
+            "hour_histogram[:hourIndex] = GREATEST(intake_daily_rollup.hour_histogram[:hourIndex] + :hourDelta, 0)",
+            nativeQuery = true)
+    void applyDelta(@Param("userId") Long userId,
+                    @Param("profileMedicationId") Long profileMedicationId,
+                    @Param("rollupDate") LocalDate rollupDate,
+                    @Param("atcGroup") String atcGroup,
+                    @Param("hourIndex") int hourIndex,
+                    @Param("takenDelta") int takenDelta,
+                    @Param("missedDelta") int missedDelta,
+                    @Param("hourDelta") int hourDelta);
+}
@@ -0,0 +1,214 @@
+package hu.project.MediWeb.modules.statistic.service;
+
+import hu.project.MediWeb.modules.notification.repository.MedicationIntakeLogRepository;
+import hu.project.MediWeb.modules.notification.repository.projection.IntakeHourlyAggregateProjection;
+import hu.project.MediWeb.modules.notification.service.MissedDoseDeriver;
+import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
+import hu.project.MediWeb.modules.profile.repository.ProfileMedicationRepository;
+import hu.project.MediWeb.modules.statistic.entity.IntakeDailyRollup;
+import hu.project.MediWeb.modules.statistic.repository.IntakeDailyRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A napi összesítők időszakos újraépítése a bevételi naplóból. Az inkrementális
+ * frissítés mellett ez korrigálja az esetleges eltéréseket (pl. közvetlen
+ * adatbázis-módosítás vagy megszakadt írás után). A csoportosítás az adatbázisban fut.
+ * Az újraépítés alatt az összesítő tábla zárolva van, így a párhuzamos
+ * inkrementális frissítések megvárják, és a kiszámolt értékekre épülnek rá.
+ */
+@Slf4j
+@Service
+public class IntakeRollupReconciler {
+
+    private final MedicationIntakeLogRepository intakeLogRepository;
+    private final IntakeDailyRollupRepository rollupRepository;
+    private final UserViewCache userViewCache;
+    private final ProfileMedicationRepository profileMedicationRepository;
+    private final MissedDoseDeriver missedDoseDeriver;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+
+    public IntakeRollupReconciler(MedicationIntakeLogRepository intakeLogRepository,
+                                  IntakeDailyRollupRepository rollupRepository,
+                                  UserViewCache userViewCache,
+                                  ProfileMedicationRepository profileMedicationRepository,
+                                  MissedDoseDeriver missedDoseDeriver,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${statistics.rollup.reconcile-days:7}") int reconcileDays) {
+        this.intakeLogRepository = intakeLogRepository;
+        this.rollupRepository = rollupRepository;
+        this.userViewCache = userViewCache;
+        this.profileMedicationRepository = profileMedicationRepository;
+        this.missedDoseDeriver = missedDoseDeriver;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileDays = Math.max(reconcileDays, 1);
+    }
+
+    /**
+     * Csak a lezárt napokat építjük újra: a mai napra az ütemező derivált módban
+     * naplósor nélkül ír elmulasztott adagot, ezt egy újraszámolás nem tudná
+     * elkülöníteni. A mai nap a következő éjszakai futásban kerül sorra.
+     */
+    @Scheduled(cron = "${statistics.rollup.reconcile-cron:0 30 3 * * *}")
+    public void reconcileRecentDays() {
+        LocalDate end = LocalDate.now().minusDays(1);
+        LocalDate start = end.minusDays(reconcileDays - 1L);
+        try {
+            int rows = rebuild(start, end);
+            log.info("Napi összesítők újraépítve {} és {} között ({} sor)", start, end, rows);
+        } catch (Exception e) {
+            log.error("Napi összesítők újraépítése sikertelen", e);
+        }
+    }
+
+    public int rebuild(LocalDate start, LocalDate end) {
+        // Saját tranzakció: az ütemezett hívás ugyanebből a példányból érkezik, proxy nélkül
+        Integer rows = transactionTemplate.execute(status -> rebuildLocked(start, end));
+        userViewCache.clear();
+        return rows != null ? rows : 0;
+    }
+
+    private int rebuildLocked(LocalDate start, LocalDate end) {
+        // A naplót csak a zár megszerzése után olvassuk: a közben érkező delták
+        // megvárják a véglegesítést, és a már újraszámolt sorokat módosítják
+        jdbcTemplate.execute("LOCK TABLE intake_daily_rollup IN SHARE ROW EXCLUSIVE MODE");
+
+        List<IntakeHourlyAggregateProjection> aggregates = intakeLogRepository.aggregateHourly(start, end);
+
+        Map<String, IntakeDailyRollup> rollups = new LinkedHashMap<>();
+        for (IntakeHourlyAggregateProjection aggregate : aggregates) {
+            String key = aggregate.getProfileMedicationId() + "|" + aggregate.getIntakeDay();
+            IntakeDailyRollup rollup = rollups.computeIfAbsent(key, ignored -> IntakeDailyRollup.builder()
+                    .userId(aggregate.getUserId())
+                    .profileMedicationId(aggregate.getProfileMedicationId())
+                    .rollupDate(aggregate.getIntakeDay())
+                    .atcGroup(aggregate.getAtcGroup())
+                    .hourHistogram(new int[IntakeDailyRollup.HOURS_PER_DAY])
+                    .build());
+
+            int taken = Math.toIntExact(aggregate.getTakenCount());
+            int missed = Math.toIntExact(aggregate.getMissedCount());
+            rollup.setTakenCount(rollup.getTakenCount() + taken);
+            rollup.setMissedCount(rollup.getMissedCount() + missed);
+            Integer hour = aggregate.getIntakeHour();
+            if (hour != null && hour >= 0 && hour < IntakeDailyRollup.HOURS_PER_DAY) {
+                rollup.getHourHistogram()[hour] += taken + missed;
+            }
+        }
+
+        if (missedDoseDeriver.isDerived()) {
+            addDerivedMissedDoses(rollups, start, end);
+        }
+
+        upsertRollups(rollups.values());
+        deleteStaleRollups(rollups, start, end);
+        return rollups.size();
+    }
+
+    private void upsertRollups(Collection<IntakeDailyRollup> rollups) {
+        List<Object[]> rows = new ArrayList<>(rollups.size());
+        for (IntakeDailyRollup rollup : rollups) {
+            rows.add(new Object[]{rollup.getUserId(), rollup.getProfileMedicationId(), Date.valueOf(rollup.getRollupDate()),
+                    rollup.getAtcGroup(), rollup.getTakenCount(), rollup.getMissedCount(),
+                    toArrayLiteral(rollup.getHourHistogram())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO intake_daily_rollup " +
+                "(user_id, profile_medication_id, rollup_date, atc_group, taken_count, missed_count, hour_histogram) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?::integer[]) " +
+                "ON CONFLICT (profile_medication_id, rollup_date) DO UPDATE SET " +
+                "user_id = EXCLUDED.user_id, atc_group = EXCLUDED.atc_group, " +
+                "taken_count = EXCLUDED.taken_count, missed_count = EXCLUDED.missed_count, " +
+                "hour_histogram = EXCLUDED.hour_histogram", rows);
+    }
+
+    /**
+     * Az időszak azon sorai, amelyekhez az újraszámolás már nem adott értéket.
+     */
+    private void deleteStaleRollups(Map<String, IntakeDailyRollup> rollups, LocalDate start, LocalDate end) {
+        List<Long> staleIds = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, profile_medication_id, rollup_date FROM intake_daily_rollup " +
+                        "WHERE rollup_date BETWEEN ? AND ?",
+                rs -> {
+                    String key = rs.getLong("profile_medication_id") + "|" + rs.getDate("rollup_date").toLocalDate();
+                    if (!rollups.containsKey(key)) {
+                        staleIds.add(rs.getLong("id"));
+                    }
+                },
+                Date.valueOf(start), Date.valueOf(end));
+        if (!staleIds.isEmpty()) {
+            rollupRepository.deleteAllByIdInBatch(staleIds);
+        }
+    }
+
+    private static String toArrayLiteral(int[] values) {
+        StringBuilder literal = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(values[i]);
+        }
+        return literal.append('}').toString();
+    }
+
+    /**
+     * Derivált módban az elmulasztott adagoknak nincs naplósoruk: óránként az
+     * ütemezett, már lejárt adagok és a naplózott bejegyzések különbségét adjuk hozzá.
+     */
+    private void addDerivedMissedDoses(Map<String, IntakeDailyRollup> rollups, LocalDate start, LocalDate end) {
+        LocalDateTime now = LocalDateTime.now();
+        // Csak az időszak vége előtt felvett, ütemezett gyógyszerek számítanak
+        for (ProfileMedication medication : profileMedicationRepository.findScheduledAddedBefore(end.plusDays(1).atStartOfDay())) {
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                int[] scheduledPerHour = new int[IntakeDailyRollup.HOURS_PER_DAY];
+                boolean any = false;
+                for (LocalTime time : missedDoseDeriver.elapsedScheduledTimes(medication, day, now)) {
+                    scheduledPerHour[time.getHour()]++;
+                    any = true;
+                }
+                if (!any) {
+                    continue;
+                }
+
+                LocalDate rollupDate = day;
+                IntakeDailyRollup rollup = rollups.computeIfAbsent(medication.getId() + "|" + day,
+                        ignored -> IntakeDailyRollup.builder()
+                                .userId(medication.getProfile().getUser().getId())
+                                .profileMedicationId(medication.getId())
+                                .rollupDate(rollupDate)
+                                .atcGroup(IntakeRollupService.resolveAtcGroup(medication))
+                                .hourHistogram(new int[IntakeDailyRollup.HOURS_PER_DAY])
+                                .build());
+
+                int[] histogram = rollup.getHourHistogram();
+                for (int hour = 0; hour < IntakeDailyRollup.HOURS_PER_DAY; hour++) {
+                    int missing = scheduledPerHour[hour] - histogram[hour];
+                    if (missing > 0) {
+                        histogram[hour] += missing;
+                        rollup.setMissedCount(rollup.getMissedCount() + missing);
+                    }
+                }
+            }
+        }
+        rollups.values().removeIf(rollup -> rollup.getTakenCount() == 0 && rollup.getMissedCount() == 0);
+    }
+}
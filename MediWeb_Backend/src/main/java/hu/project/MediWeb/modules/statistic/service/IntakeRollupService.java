@@ -0,0 +1,81 @@
+package hu.project.MediWeb.modules.statistic.service;
+
+import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
+import hu.project.MediWeb.modules.statistic.repository.IntakeDailyRollupRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Locale;
+
+/**
+ * A napi bevételi összesítők inkrementális karbantartása. Minden naplóírás
+ * csak a változás különbségét adja hozzá a (profil-gyógyszer, nap) sorhoz.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IntakeRollupService {
+
+    private final IntakeDailyRollupRepository rollupRepository;
+
+    /**
+     * Egy bevételi napló létrehozását vagy módosítását vezeti át az összesítőn.
+     *
+     * @param previousTaken a napló korábbi állapota, vagy null, ha új bejegyzés készült
+     */
+    @Transactional
+    public void recordChange(ProfileMedication profileMedication,
+                             LocalDate intakeDate,
+                             LocalTime intakeTime,
+                             Boolean previousTaken,
+                             boolean taken) {
+        if (previousTaken != null && previousTaken == taken) {
+            return;
+        }
+        if (profileMedication == null || profileMedication.getProfile() == null
+                || profileMedication.getProfile().getUser() == null) {
+            log.warn("Napi összesítő nem frissíthető: hiányzó profil kapcsolat");
+            return;
+        }
+
+        int takenDelta;
+        int missedDelta;
+        int hourDelta;
+        if (previousTaken == null) {
+            takenDelta = taken ? 1 : 0;
+            missedDelta = taken ? 0 : 1;
+            hourDelta = 1;
+        } else {
+            takenDelta = taken ? 1 : -1;
+            missedDelta = -takenDelta;
+            hourDelta = 0;
+        }
+
+        rollupRepository.applyDelta(
+                profileMedication.getProfile().getUser().getId(),
+                profileMedication.getId(),
+                intakeDate,
+                resolveAtcGroup(profileMedication),
+                intakeTime.getHour() + 1,
+                takenDelta,
+                missedDelta,
+                hourDelta
+        );
+    }
+
+    static String resolveAtcGroup(ProfileMedication profileMedication) {
+        if (profileMedication.getMedication() == null) {
+            return null;
+        }
+        String atcCode = profileMedication.getMedication().getAtcCode();
+        if (!StringUtils.hasText(atcCode)) {
+            return null;
+        }
+        return atcCode.trim().substring(0, 1).toUpperCase(Locale.ROOT);
+    }
+}
@@ -15,6 +15,9 @@ public class StatisticService {
     @Autowired
     private StatisticRepository statisticRepository;
 
+    @Autowired
+    private UserViewCache userViewCache;
+
     public List<Statistic> findAll() {
         return statisticRepository.findAll();
     }
@@ -24,10 +27,11 @@ public class StatisticService {
     }
 
     public Statistic save(Statistic statistic) {
-        return statisticRepository.save(statistic);
+        return saveAndEvict(statistic);
     }
 
     public void deleteById(Integer id) {
+        statisticRepository.findById(id).ifPresent(this::evictUserViews);
         statisticRepository.deleteById(id);
     }
 
@@ -44,7 +48,7 @@ public class StatisticService {
     public Statistic incrementSearchCount(Statistic statistic) {
         statistic.setSearchCount(statistic.getSearchCount() + 1);
         statistic.setLastSearch(LocalDateTime.now());
-        return statisticRepository.save(statistic);
+        return saveAndEvict(statistic);
     }
 
     /**
@@ -53,6 +57,19 @@ public class StatisticService {
     public Statistic incrementMedicationsAddedCount(Statistic statistic) {
         statistic.setMedicationsAddedCount(statistic.getMedicationsAddedCount() + 1);
         statistic.setLastMedicationAdded(LocalDateTime.now());
-        return statisticRepository.save(statistic);
+        return saveAndEvict(statistic);
+    }
+
+    private Statistic saveAndEvict(Statistic statistic) {
+        Statistic saved = statisticRepository.save(statistic);
+        // A dashboard összesítője (lastSearch) a felhasználói nézet gyorsítótárában van
+        evictUserViews(saved);
+        return saved;
+    }
+
+    private void evictUserViews(Statistic statistic) {
+        if (statistic.getUser() != null) {
+            userViewCache.evictUser(statistic.getUser().getId());
+        }
     }
 }
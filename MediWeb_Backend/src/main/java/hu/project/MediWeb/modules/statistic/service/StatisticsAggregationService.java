@@ -1,31 +1,30 @@
 package hu.project.MediWeb.modules.statistic.service;
 
-import hu.project.MediWeb.modules.notification.entity.MedicationIntakeLog;
-import hu.project.MediWeb.modules.notification.repository.MedicationIntakeLogRepository;
-import hu.project.MediWeb.modules.profile.entity.ProfileMedication;
 import hu.project.MediWeb.modules.statistic.dto.CategoryBreakdownItem;
 import hu.project.MediWeb.modules.statistic.dto.CategoryStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.dto.ComplianceStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.dto.CountPoint;
 import hu.project.MediWeb.modules.statistic.dto.MissedDoseStatisticsResponse;
 import hu.project.MediWeb.modules.statistic.dto.PeakIntakeTimesResponse;
+import hu.project.MediWeb.modules.statistic.dto.StatisticsOverviewResponse;
 import hu.project.MediWeb.modules.statistic.dto.TimeSeriesPoint;
 import hu.project.MediWeb.modules.statistic.dto.TrendStatisticsResponse;
+import hu.project.MediWeb.modules.statistic.entity.IntakeDailyRollup;
+import hu.project.MediWeb.modules.statistic.repository.IntakeDailyRollupRepository;
 import hu.project.MediWeb.modules.user.entity.User;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static java.util.Map.entry;
 
@@ -53,131 +52,83 @@ public class StatisticsAggregationService {
     private static final DateTimeFormatter DAILY_LABEL_FORMATTER = DateTimeFormatter.ofPattern("MM.dd");
     private static final DateTimeFormatter MONTH_LABEL_FORMATTER = DateTimeFormatter.ofPattern("yyyy. MM", new Locale("hu"));
 
-    private final MedicationIntakeLogRepository intakeLogRepository;
+    private final IntakeDailyRollupRepository rollupRepository;
+    private final UserViewCache userViewCache;
+
+    public StatisticsOverviewResponse getStatisticsOverview(User user, StatisticsPeriod period) {
+        StatisticsAccumulator accumulator = aggregate(user, period);
+        return new StatisticsOverviewResponse(
+                accumulator.toCompliance(period),
+                accumulator.toTrends(),
+                accumulator.toCategories(),
+                accumulator.toMissedDoses(),
+                accumulator.toPeakTimes()
+        );
+    }
 
     public ComplianceStatisticsResponse getComplianceStatistics(User user, StatisticsPeriod period) {
-        LocalDate end = LocalDate.now();
-        LocalDate start = period.startDate(end);
-        List<MedicationIntakeLog> logs = loadIntakeLogs(user.getId(), start, end);
-
-        long total = logs.size();
-        long taken = logs.stream().filter(MedicationIntakeLog::isTaken).count();
-        Double rate = total > 0 ? (double) taken / total : null;
-
-        return new ComplianceStatisticsResponse(
-                rate,
-                taken,
-                total,
-                period.getParamKey(),
-                OffsetDateTime.now()
-        );
+        return aggregate(user, period).toCompliance(period);
     }
 
     public TrendStatisticsResponse getTrendStatistics(User user, StatisticsPeriod period) {
-        LocalDate end = LocalDate.now();
-        List<TimeWindow> windows = buildWindows(period, end);
-        if (windows.isEmpty()) {
-            return new TrendStatisticsResponse(List.of());
-        }
-
-        List<MedicationIntakeLog> logs = loadIntakeLogs(user.getId(), windows.get(0).start(), windows.get(windows.size() - 1).end());
-
-        List<TimeSeriesPoint> history = new ArrayList<>();
-        for (TimeWindow window : windows) {
-            List<MedicationIntakeLog> windowLogs = filterLogs(logs, window);
-            if (windowLogs.isEmpty()) {
-                continue;
-            }
-            long total = windowLogs.size();
-            long taken = windowLogs.stream().filter(MedicationIntakeLog::isTaken).count();
-            Double rate = total > 0 ? (double) taken / total : null;
-            history.add(new TimeSeriesPoint(window.label(), rate));
-        }
-
-        return new TrendStatisticsResponse(history);
+        return aggregate(user, period).toTrends();
     }
 
     public CategoryStatisticsResponse getCategoryStatistics(User user, StatisticsPeriod period) {
-    LocalDate end = LocalDate.now();
-    LocalDate start = period.startDate(end);
-    List<MedicationIntakeLog> logs = loadIntakeLogs(user.getId(), start, end);
-
-    Map<String, Long> counts = logs.stream()
-        .map(MedicationIntakeLog::getProfileMedication)
-        .filter(pm -> pm != null && pm.getMedication() != null)
-        .collect(Collectors.groupingBy(
-            this::resolveCategory,
-            Collectors.counting()
-        ));
-
-    List<CategoryBreakdownItem> items = counts.entrySet().stream()
-        .filter(entry -> entry.getValue() > 0)
-        .map(entry -> new CategoryBreakdownItem(entry.getKey(), entry.getValue()))
-        .sorted((a, b) -> Long.compare(b.value(), a.value()))
-        .toList();
-
-    return new CategoryStatisticsResponse(items);
+        return aggregate(user, period).toCategories();
     }
 
     public MissedDoseStatisticsResponse getMissedDoseStatistics(User user, StatisticsPeriod period) {
-        LocalDate end = LocalDate.now();
-        List<TimeWindow> windows = buildWindows(period, end);
-        if (windows.isEmpty()) {
-            return new MissedDoseStatisticsResponse(List.of());
-        }
-
-        List<MedicationIntakeLog> logs = loadIntakeLogs(user.getId(), windows.get(0).start(), windows.get(windows.size() - 1).end());
-        List<CountPoint> points = new ArrayList<>();
-
-        for (TimeWindow window : windows) {
-            long missed = filterLogs(logs, window).stream()
-                    .filter(log -> !log.isTaken())
-                    .count();
-            if (missed > 0) {
-                points.add(new CountPoint(window.label(), missed));
-            }
-        }
-
-        return new MissedDoseStatisticsResponse(points);
+        return aggregate(user, period).toMissedDoses();
     }
 
     public PeakIntakeTimesResponse getPeakIntakeTimes(User user, StatisticsPeriod period) {
-        LocalDate end = LocalDate.now();
-        LocalDate start = period.startDate(end);
-        List<MedicationIntakeLog> logs = loadIntakeLogs(user.getId(), start, end);
+        return aggregate(user, period).toPeakTimes();
+    }
 
-        Map<String, Long> counts = logs.stream()
-                .collect(Collectors.groupingBy(
-                        log -> toTimeLabel(log.getIntakeTime()),
-                        Collectors.counting()
-                ));
+    /**
+     * Egyetlen lekérdezés és egyetlen bejárás alatt az összes statisztikatípushoz
+     * szükséges számlálót feltölti. A kész számlálók felhasználónként és
+     * időszakonként gyorsítótárba kerülnek; a feltöltés után már nem módosulnak.
+     */
+    private StatisticsAccumulator aggregate(User user, StatisticsPeriod period) {
+        LocalDate end = LocalDate.now();
+        String view = "statistics:" + period.getParamKey() + ":" + end;
+        return userViewCache.getOrCompute(user.getId(), view, () -> computeAggregate(user, period, end));
+    }
 
-        List<CountPoint> points = counts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(6)
-                .map(entry -> new CountPoint(entry.getKey(), entry.getValue()))
-                .toList();
+    private StatisticsAccumulator computeAggregate(User user, StatisticsPeriod period, LocalDate end) {
+        LocalDate start = period.startDate(end);
+        List<TimeWindow> windows = buildWindows(period, end);
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(windows);
 
-        return new PeakIntakeTimesResponse(points);
+        for (IntakeDailyRollup rollup : loadRollups(user.getId(), start, end)) {
+            accumulator.add(rollup, windowIndex(windows, rollup.getRollupDate()), resolveCategory(rollup.getAtcGroup()));
+        }
+        return accumulator;
     }
 
-    private List<MedicationIntakeLog> loadIntakeLogs(Long userId, LocalDate start, LocalDate end) {
+    private List<IntakeDailyRollup> loadRollups(Long userId, LocalDate start, LocalDate end) {
         LocalDate effectiveStart = start == null ? end.minusDays(30) : start;
         LocalDate effectiveEnd = end == null ? LocalDate.now() : end;
         if (effectiveStart.isAfter(effectiveEnd)) {
             effectiveStart = effectiveEnd.minusDays(30);
         }
-        return intakeLogRepository.findByProfileMedicationProfileUserIdAndIntakeDateBetweenOrderByIntakeDateAsc(
+        return rollupRepository.findByUserIdAndRollupDateBetweenOrderByRollupDateAsc(
                 userId,
                 effectiveStart,
                 effectiveEnd
         );
     }
 
-    private List<MedicationIntakeLog> filterLogs(List<MedicationIntakeLog> logs, TimeWindow window) {
-        return logs.stream()
-                .filter(log -> !log.getIntakeDate().isBefore(window.start()) && !log.getIntakeDate().isAfter(window.end()))
-                .collect(Collectors.toList());
+    private int windowIndex(List<TimeWindow> windows, LocalDate date) {
+        for (int i = 0; i < windows.size(); i++) {
+            TimeWindow window = windows.get(i);
+            if (!date.isBefore(window.start()) && !date.isAfter(window.end())) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     private List<TimeWindow> buildWindows(StatisticsPeriod period, LocalDate end) {
@@ -230,22 +181,109 @@ public class StatisticsAggregationService {
         return windows;
     }
 
-    private String resolveCategory(ProfileMedication profileMedication) {
-        if (profileMedication == null || profileMedication.getMedication() == null) {
-            return "Ismeretlen";
-        }
-        String atcCode = profileMedication.getMedication().getAtcCode();
-        if (!StringUtils.hasText(atcCode)) {
+    private String resolveCategory(String atcGroup) {
+        if (!StringUtils.hasText(atcGroup)) {
             return "Ismeretlen";
         }
-        char key = Character.toUpperCase(atcCode.charAt(0));
+        char key = Character.toUpperCase(atcGroup.charAt(0));
         return ATC_GROUPS.getOrDefault(key, "Egyeb");
     }
 
-    private String toTimeLabel(LocalTime time) {
-        return time == null ? "" : time.toString();
+    private record TimeWindow(LocalDate start, LocalDate end, String label) {
     }
 
-    private record TimeWindow(LocalDate start, LocalDate end, String label) {
+    private static final class StatisticsAccumulator {
+
+        private final List<TimeWindow> windows;
+        private final long[] takenPerWindow;
+        private final long[] totalPerWindow;
+        private final long[] missedPerWindow;
+        private final long[] hourCounts = new long[IntakeDailyRollup.HOURS_PER_DAY];
+        private final Map<String, Long> categoryCounts = new HashMap<>();
+        private long taken;
+        private long total;
+
+        StatisticsAccumulator(List<TimeWindow> windows) {
+            this.windows = windows;
+            this.takenPerWindow = new long[windows.size()];
+            this.totalPerWindow = new long[windows.size()];
+            this.missedPerWindow = new long[windows.size()];
+        }
+
+        void add(IntakeDailyRollup rollup, int windowIndex, String category) {
+            long entries = rollup.getTakenCount() + rollup.getMissedCount();
+            taken += rollup.getTakenCount();
+            total += entries;
+
+            if (windowIndex >= 0) {
+                takenPerWindow[windowIndex] += rollup.getTakenCount();
+                totalPerWindow[windowIndex] += entries;
+                missedPerWindow[windowIndex] += rollup.getMissedCount();
+            }
+            if (entries > 0) {
+                categoryCounts.merge(category, entries, Long::sum);
+            }
+
+            int[] histogram = rollup.getHourHistogram();
+            if (histogram != null) {
+                for (int hour = 0; hour < Math.min(hourCounts.length, histogram.length); hour++) {
+                    hourCounts[hour] += histogram[hour];
+                }
+            }
+        }
+
+        ComplianceStatisticsResponse toCompliance(StatisticsPeriod period) {
+            Double rate = total > 0 ? (double) taken / total : null;
+            return new ComplianceStatisticsResponse(
+                    rate,
+                    taken,
+                    total,
+                    period.getParamKey(),
+                    OffsetDateTime.now()
+            );
+        }
+
+        TrendStatisticsResponse toTrends() {
+            List<TimeSeriesPoint> history = new ArrayList<>();
+            for (int i = 0; i < windows.size(); i++) {
+                if (totalPerWindow[i] == 0) {
+                    continue;
+                }
+                history.add(new TimeSeriesPoint(windows.get(i).label(), (double) takenPerWindow[i] / totalPerWindow[i]));
+            }
+            return new TrendStatisticsResponse(history);
+        }
+
+        CategoryStatisticsResponse toCategories() {
+            List<CategoryBreakdownItem> items = categoryCounts.entrySet().stream()
+                    .map(entry -> new CategoryBreakdownItem(entry.getKey(), entry.getValue()))
+                    .sorted((a, b) -> Long.compare(b.value(), a.value()))
+                    .toList();
+            return new CategoryStatisticsResponse(items);
+        }
+
+        MissedDoseStatisticsResponse toMissedDoses() {
+            List<CountPoint> points = new ArrayList<>();
+            for (int i = 0; i < windows.size(); i++) {
+                if (missedPerWindow[i] > 0) {
+                    points.add(new CountPoint(windows.get(i).label(), missedPerWindow[i]));
+                }
+            }
+            return new MissedDoseStatisticsResponse(points);
+        }
+
+        PeakIntakeTimesResponse toPeakTimes() {
+            List<CountPoint> points = new ArrayList<>();
+            for (int hour = 0; hour < hourCounts.length; hour++) {
+                if (hourCounts[hour] > 0) {
+                    points.add(new CountPoint(String.format("%02d:00", hour), hourCounts[hour]));
+                }
+            }
+            List<CountPoint> top = points.stream()
+                    .sorted((a, b) -> Long.compare(b.value(), a.value()))
+                    .limit(6)
+                    .toList();
+            return new PeakIntakeTimesResponse(top);
+        }
     }
 }
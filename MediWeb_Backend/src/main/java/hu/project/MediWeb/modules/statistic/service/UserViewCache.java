@@ -0,0 +1,120 @@
+package hu.project.MediWeb.modules.statistic.service;
+
+import hu.project.MediWeb.cache.AfterCommit;
+import hu.project.MediWeb.cache.LruTtlCache;
+import hu.project.MediWeb.modules.profile.event.UserMedicationDataChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Felhasználónkénti nézetek (dashboard, statisztikák) gyorsítótára. A kulcs a
+ * felhasználó és a nézet azonosítója (időszak, nap); a bejegyzéseket a
+ * {@link UserMedicationDataChangedEvent} pontosan az érintett felhasználóra törli.
+ * A méretkorlát felett a legrégebben használt bejegyzés kerül ki, a TTL csak
+ * biztonsági háló az eseményekkel nem követett változásokhoz. A számítás közbeni
+ * érvénytelenítést felhasználónkénti generáció jelzi, így egy felhasználó
+ * változása a többiek eredményének tárolását nem akadályozza.
+ */
+@Component
+public class UserViewCache {
+
+    private final LruTtlCache<ViewKey, Object> entries;
+    private final Map<Long, Long> generations;
+    private final AtomicLong generationSequence = new AtomicLong();
+    // A generációs táblából kikerült felhasználók generációja: a kikerülés előtti legnagyobb érték
+    private long prunedGeneration;
+
+    public UserViewCache(MeterRegistry meterRegistry,
+                         @Value("${cache.user-views.max-entries:2000}") int maxEntries,
+                         @Value("${cache.user-views.ttl-minutes:10}") long ttlMinutes) {
+        int capacity = Math.max(maxEntries, 1);
+        this.entries = new LruTtlCache<>(capacity, Duration.ofMinutes(Math.max(ttlMinutes, 1)),
+                meterRegistry, "mediweb.user.view.cache");
+        this.generations = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                if (size() > capacity) {
+                    prunedGeneration = Math.max(prunedGeneration, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("mediweb.user.view.cache.hit.ratio", this, UserViewCache::hitRatio).register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(Long userId, String view, Supplier<T> loader) {
+        if (userId == null) {
+            return loader.get();
+        }
+        ViewKey key = new ViewKey(userId, view);
+        Object cached = entries.get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        long generationBefore = generationOf(userId);
+        T value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        // Számítás közbeni érvénytelenítés után nem tároljuk a már elavult eredményt
+        entries.putIf(key, value, () -> generationOf(userId) == generationBefore);
+        return value;
+    }
+
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.runNowAndAfterCommit(() -> {
+            synchronized (generations) {
+                generations.remove(userId);
+                generations.put(userId, generationSequence.incrementAndGet());
+            }
+            entries.removeIf((key, value) -> key.userId().equals(userId));
+        });
+    }
+
+    public void clear() {
+        AfterCommit.runNowAndAfterCommit(() -> {
+            synchronized (generations) {
+                generations.clear();
+                prunedGeneration = generationSequence.incrementAndGet();
+            }
+            entries.clear();
+        });
+    }
+
+    @EventListener
+    public void onUserMedicationDataChanged(UserMedicationDataChangedEvent event) {
+        evictUser(event.userId());
+    }
+
+    private long generationOf(Long userId) {
+        synchronized (generations) {
+            return generations.getOrDefault(userId, prunedGeneration);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public double hitRatio() {
+        return entries.hitRatio();
+    }
+
+    private record ViewKey(Long userId, String view) {
+    }
+}
@@ -4,20 +4,29 @@ import hu.project.MediWeb.modules.user.dto.PasswordChangeRequest;
 import hu.project.MediWeb.modules.user.dto.PasswordConfirmationRequest;
 import hu.project.MediWeb.modules.user.dto.UserPreferencesDto;
 import hu.project.MediWeb.modules.user.entity.User;
+import hu.project.MediWeb.modules.user.entity.UserDataRequest;
+import hu.project.MediWeb.modules.user.enums.UserDataRequestStatus;
 import hu.project.MediWeb.modules.user.enums.UserDataRequestType;
 import hu.project.MediWeb.modules.user.enums.UserRole;
 import hu.project.MediWeb.modules.user.service.UserDataRequestService;
 import hu.project.MediWeb.modules.user.service.UserPreferencesService;
 import hu.project.MediWeb.modules.user.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -160,6 +169,31 @@ public class UserController {
         return ResponseEntity.accepted().build();
     }
 
+    @GetMapping("/data-export")
+    public ResponseEntity<?> downloadDataExport() {
+        User user = getCurrentUser();
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Optional<UserDataRequest> latest = userDataRequestService.findLatestRequest(user, UserDataRequestType.DATA_EXPORT);
+        if (latest.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        UserDataRequest request = latest.get();
+        if (request.getStatus() != UserDataRequestStatus.COMPLETED || request.getResultLocation() == null) {
+            return ResponseEntity.accepted().body(Map.of("status", request.getStatus().name()));
+        }
+        Path archive = Paths.get(request.getResultLocation());
+        if (!Files.isReadable(archive)) {
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("message", "Az export már nem érhető el, kérj újat."));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"mediweb-export.zip\"")
+                .body(new FileSystemResource(archive));
+    }
+
     @DeleteMapping("/me")
     public ResponseEntity<?> deleteCurrentUser(@RequestBody PasswordConfirmationRequest request) {
         User user = getCurrentUser();
@@ -54,9 +54,15 @@ public class UserDataRequest {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
+    @Column(name = "result_location", columnDefinition = "TEXT")
+    private String resultLocation;
+
     @PrePersist
     public void onCreate() {
         if (createdAt == null) {
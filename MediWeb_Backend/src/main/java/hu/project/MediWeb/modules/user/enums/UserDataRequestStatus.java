@@ -4,5 +4,6 @@ public enum UserDataRequestStatus {
     PENDING,
     IN_PROGRESS,
     COMPLETED,
-    REJECTED
+    REJECTED,
+    FAILED
 }
@@ -1,7 +1,12 @@
 package hu.project.MediWeb.modules.user.repository;
 
 import hu.project.MediWeb.modules.user.entity.UserDataRequest;
+import hu.project.MediWeb.modules.user.enums.UserDataRequestType;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
+
 public interface UserDataRequestRepository extends JpaRepository<UserDataRequest, Long> {
+
+    Optional<UserDataRequest> findFirstByUser_IdAndTypeOrderByCreatedAtDesc(Long userId, UserDataRequestType type);
 }
@@ -0,0 +1,155 @@
+package hu.project.MediWeb.modules.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fióktörlés halmazalapú DELETE utasításokkal, a függőségi sorrendben. A nagy
+ * táblákat (bevételi napló) rögzített méretű darabokban, darabonként külön
+ * tranzakcióban töröljük, így hosszú felhasználói előzménynél sem nő a zárolt
+ * sorok és a WAL egyetlen tranzakcióra eső mennyisége. Egy megszakadt törlés
+ * egyszerűen újrafuttatható, a már törölt lépések üresen futnak le.
+ */
+@Slf4j
+@Service
+public class AccountDeletionService {
+
+    private static final String USER_PROFILE_MEDICATIONS =
+            "SELECT pm.id FROM profile_medications pm JOIN profiles p ON p.id = pm.profile_id WHERE p.user_id = ?";
+
+    private static final String RATING_AGGREGATE_DECREMENT =
+            "UPDATE medication_rating_aggregate a SET " +
+            "review_count = a.review_count - r.cnt, rating_sum = a.rating_sum - r.total, " +
+            "rating_histogram = ARRAY[a.rating_histogram[1] - r.r1, a.rating_histogram[2] - r.r2, " +
+            "a.rating_histogram[3] - r.r3, a.rating_histogram[4] - r.r4, a.rating_histogram[5] - r.r5], " +
+            "updated_at = now() " +
+            "FROM (SELECT item_id, count(*) AS cnt, sum(rating) AS total, " +
+            "count(*) FILTER (WHERE rating = 1) AS r1, count(*) FILTER (WHERE rating = 2) AS r2, " +
+            "count(*) FILTER (WHERE rating = 3) AS r3, count(*) FILTER (WHERE rating = 4) AS r4, " +
+            "count(*) FILTER (WHERE rating = 5) AS r5 " +
+            "FROM reviews WHERE user_id = ? AND rating BETWEEN 1 AND 5 GROUP BY item_id) r " +
+            "WHERE a.item_id = r.item_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public AccountDeletionService(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${user-data.deletion.chunk-size:5000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Külső tranzakcióból hívva is darabonként kell véglegesíteni
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = Math.max(chunkSize, 100);
+    }
+
+    /**
+     * A felhasználó és minden hozzá tartozó adat törlése; a visszatérési érték
+     * lépésenként a törölt sorok száma.
+     */
+    public Map<String, Integer> deleteAccount(Long userId) {
+        long started = System.currentTimeMillis();
+        Map<String, Integer> report = new LinkedHashMap<>();
+        log.info("[ACCOUNT-DELETION] Fiók törlése elindult: {}", userId);
+
+        report.put("medication_intake_log", deleteInChunks("medication_intake_log", userId,
+                "DELETE FROM medication_intake_log WHERE (id, intake_date) IN (" +
+                "SELECT l.id, l.intake_date FROM medication_intake_log l " +
+                "WHERE l.profile_medication_id IN (" + USER_PROFILE_MEDICATIONS + ") LIMIT ?)"));
+        report.put("intake_daily_rollup", deleteInChunks("intake_daily_rollup", userId,
+                "DELETE FROM intake_daily_rollup WHERE id IN (" +
+                "SELECT id FROM intake_daily_rollup WHERE user_id = ? LIMIT ?)"));
+
+        List<Step> steps = List.of(
+                new Step("profile_medications", "DELETE FROM profile_medications WHERE id IN (" + USER_PROFILE_MEDICATIONS + ")", 1),
+                new Step("profiles", "DELETE FROM profiles WHERE user_id = ?", 1),
+                new Step("review_reports", "DELETE FROM review_reports WHERE reporter_id = ? " +
+                        "OR review_id IN (SELECT id FROM reviews WHERE user_id = ?)", 2),
+                // Az értékelési összesítőből a törlendő értékeléseket még a törlés előtt levonjuk
+                new Step("medication_rating_aggregate", RATING_AGGREGATE_DECREMENT, 1),
+                new Step("reviews", "DELETE FROM reviews WHERE user_id = ?", 1),
+                new Step("favorites", "DELETE FROM favorites WHERE user_id = ?", 1),
+                new Step("expo_push_tokens", "DELETE FROM expo_push_tokens WHERE user_id = ?", 1),
+                new Step("push_subscriptions", "DELETE FROM push_subscriptions WHERE user_id = ?", 1),
+                new Step("statistics", "DELETE FROM statistics WHERE user_id = ?", 1),
+                new Step("user_preferences", "DELETE FROM user_preferences WHERE user_id = ?", 1),
+                new Step("verification_tokens", "DELETE FROM verification_tokens WHERE email = " +
+                        "(SELECT email FROM users WHERE id = ?)", 1),
+                new Step("user_data_requests", "DELETE FROM user_data_requests WHERE user_id = ?", 1));
+
+        // Az adatexport ZIP fájlokat csak a kérések soraiból találjuk meg, ezért a törlés előtt kigyűjtjük
+        List<String> exportFiles = tableExists("user_data_requests")
+                ? jdbcTemplate.queryForList("SELECT result_location FROM user_data_requests " +
+                        "WHERE user_id = ? AND result_location IS NOT NULL", String.class, userId)
+                : List.of();
+
+        // A maradék táblák kicsik: egy tranzakcióban, a felhasználó sorával együtt töröljük
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Step step : steps) {
+                if (tableExists(step.table())) {
+                    Object[] args = new Object[step.userIdParameters()];
+                    Arrays.fill(args, userId);
+                    report.put(step.table(), jdbcTemplate.update(step.sql(), args));
+                }
+            }
+            report.put("users", jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId));
+        });
+
+        report.put("export_files", deleteExportFiles(exportFiles));
+        log.info("[ACCOUNT-DELETION] Fiók törölve: {} ({} ms) {}", userId, System.currentTimeMillis() - started, report);
+        return report;
+    }
+
+    private int deleteInChunks(String table, Long userId, String chunkSql) {
+        if (!tableExists(table)) {
+            return 0;
+        }
+        int total = 0;
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(chunkSql, userId, chunkSize));
+            int count = deleted != null ? deleted : 0;
+            total += count;
+            if (count < chunkSize) {
+                break;
+            }
+            log.info("[ACCOUNT-DELETION] {}: {} sor törölve eddig (felhasználó {})", table, total, userId);
+        }
+        return total;
+    }
+
+    private int deleteExportFiles(List<String> locations) {
+        int deleted = 0;
+        for (String location : locations) {
+            try {
+                if (Files.deleteIfExists(Paths.get(location))) {
+                    deleted++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("[ACCOUNT-DELETION] Adatexport fájl nem törölhető: {}", location, e);
+            }
+        }
+        return deleted;
+    }
+
+    private boolean tableExists(String table) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, "public." + table);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private record Step(String table, String sql, int userIdParameters) {
+    }
+}
@@ -8,6 +8,8 @@ import jakarta.servlet.http.HttpSession;
 import hu.project.MediWeb.modules.user.repository.VerificationTokenRepository;
 import hu.project.MediWeb.modules.user.entity.VerificationToken;
 import hu.project.MediWeb.modules.notification.service.EmailNotificationService;
+import hu.project.MediWeb.security.AuthenticatedUserCache;
+import hu.project.MediWeb.security.CurrentUserHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -40,6 +42,9 @@ public class AuthService {
     @Autowired
     private EmailNotificationService emailNotificationService;
 
+    @Autowired
+    private AuthenticatedUserCache authenticatedUserCache;
+
     public User register(User user) {
         System.out.println("🚀 Registration attempt for email: " + user.getEmail());
         
@@ -95,6 +100,7 @@ public class AuthService {
         if (user != null) {
             user.setIs_active(true);
             userRepository.save(user);
+            authenticatedUserCache.evict(email);
             verificationTokenRepository.deleteAllByEmail(email);
             return true;
         }
@@ -102,7 +108,8 @@ public class AuthService {
     }
 
     public User findByEmail(String email) {
-        return userRepository.findByEmail(email)
+        return CurrentUserHolder.find(email)
+                .or(() -> userRepository.findByEmail(email))
                 .orElse(null);
     }
 
@@ -0,0 +1,298 @@
+package hu.project.MediWeb.modules.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.project.MediWeb.modules.user.enums.UserDataRequestStatus;
+import hu.project.MediWeb.modules.user.enums.UserDataRequestType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A DATA_EXPORT típusú adatkérések háttérfeldolgozása. A felhasználó adatait
+ * táblánként NDJSON bejegyzésként, közvetlenül egy ZIP fájlba írjuk; az olvasás
+ * rögzített fetch mérettel, kurzorral történik, így a memóriahasználat a napló
+ * hosszától függetlenül állandó. A kérés állapota PENDING → IN_PROGRESS →
+ * COMPLETED/FAILED, a félbeszakadt feldolgozást időkorlát után újrapróbáljuk.
+ * Az archívumok saját, korlátos végrehajtón készülnek, így a hosszú export nem
+ * tartja fel az ütemező szálát és a többi ütemezett feladatot.
+ */
+@Slf4j
+@Component
+public class UserDataExportWorker {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final Set<String> EXCLUDED_USER_COLUMNS = Set.of("password");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long stuckTimeoutMinutes;
+    private final int retentionDays;
+    private final Path exportDirectory;
+    private final ThreadPoolExecutor exportExecutor;
+
+    public UserDataExportWorker(JdbcTemplate jdbcTemplate,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${user-data.export.enabled:true}") boolean enabled,
+                                @Value("${user-data.export.batch-size:5}") int batchSize,
+                                @Value("${user-data.export.concurrency:1}") int concurrency,
+                                @Value("${user-data.export.stuck-timeout-minutes:60}") long stuckTimeoutMinutes,
+                                @Value("${user-data.export.retention-days:7}") int retentionDays,
+                                @Value("${user-data.export.directory:./exports}") String exportDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        this.stuckTimeoutMinutes = Math.max(stuckTimeoutMinutes, 1);
+        this.retentionDays = Math.max(retentionDays, 1);
+        this.exportDirectory = Paths.get(exportDirectory);
+        int threads = Math.max(concurrency, 1);
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.exportExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.batchSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-data-export-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // A megszakított export IN_PROGRESS marad, és az időkorlát után újra sorra kerül
+        exportExecutor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${user-data.export.poll-interval-ms:60000}",
+            initialDelayString = "${user-data.export.initial-delay-ms:30000}")
+    public void processPendingExports() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            requeueStuckExports();
+            // Csak annyit veszünk fel, amennyi a végrehajtó sorába még befér
+            int capacity = exportExecutor.getQueue().remainingCapacity();
+            if (capacity > 0) {
+                List<Map<String, Object>> pending = jdbcTemplate.queryForList(
+                        "SELECT id, user_id FROM user_data_requests WHERE request_type = ? AND status = ? " +
+                        "ORDER BY created_at LIMIT ?",
+                        UserDataRequestType.DATA_EXPORT.name(), UserDataRequestStatus.PENDING.name(), capacity);
+                for (Map<String, Object> request : pending) {
+                    long requestId = ((Number) request.get("id")).longValue();
+                    long userId = ((Number) request.get("user_id")).longValue();
+                    if (claim(requestId) && !submit(requestId, userId)) {
+                        break;
+                    }
+                }
+            }
+            purgeExpiredExports();
+        } catch (Exception e) {
+            log.error("[DATA-EXPORT] Adatexport-kérések feldolgozása sikertelen", e);
+        }
+    }
+
+    private boolean claim(long requestId) {
+        // Feltételes frissítés: több példány esetén is csak egy dolgozza fel a kérést
+        return jdbcTemplate.update(
+                "UPDATE user_data_requests SET status = ?, started_at = ? WHERE id = ? AND status = ?",
+                UserDataRequestStatus.IN_PROGRESS.name(), Timestamp.valueOf(LocalDateTime.now()),
+                requestId, UserDataRequestStatus.PENDING.name()) == 1;
+    }
+
+    private boolean submit(long requestId, long userId) {
+        try {
+            exportExecutor.execute(() -> export(requestId, userId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Telített sor: a kérést visszaadjuk, a következő körben újra felvesszük
+            jdbcTemplate.update(
+                    "UPDATE user_data_requests SET status = ?, started_at = NULL WHERE id = ? AND status = ?",
+                    UserDataRequestStatus.PENDING.name(), requestId, UserDataRequestStatus.IN_PROGRESS.name());
+            log.debug("[DATA-EXPORT] Export végrehajtó telített, kérés {} visszaállítva", requestId);
+            return false;
+        }
+    }
+
+    private void export(long requestId, long userId) {
+        long started = System.currentTimeMillis();
+        try {
+            // Az elakadás-figyelés a tényleges indulástól számít, nem a sorba állítástól
+            jdbcTemplate.update("UPDATE user_data_requests SET started_at = ? WHERE id = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), requestId);
+            Path target = writeArchive(requestId, userId);
+            jdbcTemplate.update(
+                    "UPDATE user_data_requests SET status = ?, processed_at = ?, result_location = ? WHERE id = ?",
+                    UserDataRequestStatus.COMPLETED.name(), Timestamp.valueOf(LocalDateTime.now()),
+                    target.toString(), requestId);
+            log.info("[DATA-EXPORT] Adatexport kész: kérés {}, felhasználó {} ({} ms)",
+                    requestId, userId, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            jdbcTemplate.update(
+                    "UPDATE user_data_requests SET status = ?, processed_at = ? WHERE id = ?",
+                    UserDataRequestStatus.FAILED.name(), Timestamp.valueOf(LocalDateTime.now()), requestId);
+            log.error("[DATA-EXPORT] Adatexport sikertelen: kérés {}, felhasználó {}", requestId, userId, e);
+        }
+    }
+
+    private Path writeArchive(long requestId, long userId) throws IOException {
+        Files.createDirectories(exportDirectory);
+        String fileName = "user-" + userId + "-export-" + requestId + ".zip";
+        Path target = exportDirectory.resolve(fileName);
+        Path temp = exportDirectory.resolve(fileName + ".tmp");
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(temp));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8))) {
+            // Kurzoros olvasás csak tranzakción belül működik a PostgreSQL driverrel
+            readOnlyTransaction.executeWithoutResult(status -> {
+                writeEntry(zip, writer, "user.ndjson", EXCLUDED_USER_COLUMNS,
+                        "SELECT * FROM users WHERE id = ?", userId);
+                writeEntry(zip, writer, "profiles.ndjson", Set.of(),
+                        "SELECT * FROM profiles WHERE user_id = ? ORDER BY id", userId);
+                writeEntry(zip, writer, "profile_medications.ndjson", Set.of(),
+                        "SELECT pm.*, m.name AS medication_name FROM profile_medications pm " +
+                        "JOIN profiles p ON p.id = pm.profile_id " +
+                        "LEFT JOIN medications m ON m.id = pm.medication_id " +
+                        "WHERE p.user_id = ? ORDER BY pm.id", userId);
+                writeEntry(zip, writer, "medication_intake_log.ndjson", Set.of(),
+                        "SELECT l.* FROM medication_intake_log l " +
+                        "JOIN profile_medications pm ON pm.id = l.profile_medication_id " +
+                        "JOIN profiles p ON p.id = pm.profile_id " +
+                        "WHERE p.user_id = ? ORDER BY l.intake_date, l.intake_time, l.id", userId);
+                writeEntry(zip, writer, "favorites.ndjson", Set.of(),
+                        "SELECT f.*, m.name AS medication_name FROM favorites f " +
+                        "LEFT JOIN medications m ON m.id = f.medication_id " +
+                        "WHERE f.user_id = ? ORDER BY f.id", userId);
+                writeEntry(zip, writer, "reviews.ndjson", Set.of(),
+                        "SELECT * FROM reviews WHERE user_id = ? ORDER BY id", userId);
+                writeEntry(zip, writer, "user_preferences.ndjson", Set.of(),
+                        "SELECT * FROM user_preferences WHERE user_id = ?", userId);
+            });
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    private void writeEntry(ZipOutputStream zip, Writer writer, String entryName,
+                            Set<String> excludedColumns, String sql, Object... args) {
+        try {
+            zip.putNextEntry(new ZipEntry(entryName));
+            cursorJdbcTemplate.query(sql, rs -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(toRow(rs, excludedColumns)));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, args);
+            writer.flush();
+            zip.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> toRow(ResultSet rs, Set<String> excludedColumns) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String column = metaData.getColumnLabel(i);
+            if (!excludedColumns.contains(column)) {
+                row.put(column, toJsonValue(rs.getObject(i)));
+            }
+        }
+        return row;
+    }
+
+    private static Object toJsonValue(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate().toString();
+        }
+        if (value instanceof java.sql.Time time) {
+            return time.toLocalTime().toString();
+        }
+        return value;
+    }
+
+    private void requeueStuckExports() {
+        int requeued = jdbcTemplate.update(
+                "UPDATE user_data_requests SET status = ?, started_at = NULL " +
+                "WHERE request_type = ? AND status = ? AND started_at < ?",
+                UserDataRequestStatus.PENDING.name(), UserDataRequestType.DATA_EXPORT.name(),
+                UserDataRequestStatus.IN_PROGRESS.name(),
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(stuckTimeoutMinutes)));
+        if (requeued > 0) {
+            log.warn("[DATA-EXPORT] {} félbeszakadt adatexport újra sorba állítva", requeued);
+        }
+    }
+
+    private void purgeExpiredExports() {
+        List<Map<String, Object>> expired = jdbcTemplate.queryForList(
+                "SELECT id, result_location FROM user_data_requests " +
+                "WHERE request_type = ? AND status = ? AND result_location IS NOT NULL AND processed_at < ?",
+                UserDataRequestType.DATA_EXPORT.name(), UserDataRequestStatus.COMPLETED.name(),
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        for (Map<String, Object> request : expired) {
+            try {
+                Files.deleteIfExists(Paths.get((String) request.get("result_location")));
+                jdbcTemplate.update("UPDATE user_data_requests SET result_location = NULL WHERE id = ?",
+                        request.get("id"));
+            } catch (IOException e) {
+                log.warn("[DATA-EXPORT] Lejárt exportfájl nem törölhető: {}", request.get("result_location"));
+            }
+        }
+    }
+}
@@ -11,6 +11,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -31,6 +33,11 @@ public class UserDataRequestService {
         log.info("Recorded {} request for user {}", type, user.getId());
     }
 
+    @Transactional(readOnly = true)
+    public Optional<UserDataRequest> findLatestRequest(User user, UserDataRequestType type) {
+        return requestRepository.findFirstByUser_IdAndTypeOrderByCreatedAtDesc(user.getId(), type);
+    }
+
     private String serializeMetadata(Object metadata) {
         if (metadata == null) {
             return null;
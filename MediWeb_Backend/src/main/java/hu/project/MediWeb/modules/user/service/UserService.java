@@ -1,13 +1,15 @@
 package hu.project.MediWeb.modules.user.service;
 
+import hu.project.MediWeb.modules.favorite.service.FavoriteMembershipCache;
 import hu.project.MediWeb.modules.user.dto.PasswordChangeRequest;
 import hu.project.MediWeb.modules.user.entity.User;
 import hu.project.MediWeb.modules.user.enums.UserRole;
 import hu.project.MediWeb.modules.user.repository.UserRepository;
+import hu.project.MediWeb.security.AuthenticatedUserCache;
+import hu.project.MediWeb.security.CurrentUserHolder;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,7 +27,11 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private AccountDeletionService accountDeletionService;
+    @Autowired
+    private AuthenticatedUserCache authenticatedUserCache;
+    @Autowired
+    private FavoriteMembershipCache favoriteMembershipCache;
 
     public User getCurrentUser(HttpServletRequest request) {
         return (User) request.getSession().getAttribute("user");
@@ -43,6 +49,11 @@ public class UserService {
 
     @Transactional
     public Optional<User> findUserByEmail(String email) {
+        // A JWT szűrő által erre a kérésre már betöltött felhasználót használjuk újra
+        Optional<User> current = CurrentUserHolder.find(email);
+        if (current.isPresent()) {
+            return current;
+        }
         return userRepository.findByEmail(email);
     }
 
@@ -51,15 +62,17 @@ public class UserService {
         if (user.getRegistration_date() == null) {
             user.setRegistration_date(LocalDateTime.now());
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Email-, állapot- vagy adatváltozás: a korábbi email alatt tárolt bejegyzés is törlődjön
+        authenticatedUserCache.evictUser(saved.getId());
+        return saved;
     }
 
-    @Transactional
+    // Nem tranzakciós: a törlés darabonként, saját tranzakciókban fut
     public void deleteUser(Long id) {
-        jdbcTemplate.update("DELETE FROM favorites WHERE user_id = ?", id);
-        jdbcTemplate.update("DELETE FROM reviews WHERE user_id = ?", id);
-        jdbcTemplate.update("DELETE FROM profiles WHERE user_id = ?", id);
-        userRepository.deleteById(id);
+        accountDeletionService.deleteAccount(id);
+        authenticatedUserCache.evictUser(id);
+        favoriteMembershipCache.evict(id);
     }
 
     @Transactional
@@ -67,7 +80,9 @@ public class UserService {
         return userRepository.findById(userId)
                 .map(u -> {
                     u.setRole(newRole);
-                    return userRepository.save(u);
+                    User saved = userRepository.save(u);
+                    authenticatedUserCache.evictUser(userId);
+                    return saved;
                 })
                 .orElse(null);
     }
@@ -81,6 +96,7 @@ public class UserService {
             String encoded = passwordEncoder.encode(request.getNewPassword());
             user.setPassword(encoded);
             userRepository.save(user);
+            authenticatedUserCache.evictUser(user.getId());
             return true;
         } else {
             return false;
@@ -100,6 +116,7 @@ public class UserService {
             byte[] bytes = file.getBytes();
             user.setProfile_picture(bytes);
             userRepository.save(user);
+            authenticatedUserCache.evictUser(user.getId());
         } catch (IOException e) {
             throw new RuntimeException("Nem sikerült elmenteni a profilképet.", e);
         }
@@ -0,0 +1,109 @@
+package hu.project.MediWeb.security;
+
+import hu.project.MediWeb.cache.AfterCommit;
+import hu.project.MediWeb.cache.LruTtlCache;
+import hu.project.MediWeb.modules.user.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A JWT-vel azonosított felhasználók rövid élettartamú gyorsítótára email szerint,
+ * hogy a szűrő ne kérdezze le minden kérésnél a "users" táblát. A szerepkör,
+ * aktív állapot, jelszó vagy adatok módosítása és a törlés a {@link hu.project.MediWeb.modules.user.service.UserService}
+ * és az {@link hu.project.MediWeb.modules.user.service.AuthService} felől azonnal törli a bejegyzést.
+ * A tárolt entitást soha nem adjuk ki közvetlenül, minden kérés saját másolatot kap.
+ */
+@Component
+public class AuthenticatedUserCache {
+
+    private final LruTtlCache<String, CacheEntry> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AuthenticatedUserCache(MeterRegistry meterRegistry,
+                                  @Value("${cache.principals.max-entries:5000}") int maxEntries,
+                                  @Value("${cache.principals.ttl-seconds:60}") long ttlSeconds) {
+        this.entries = new LruTtlCache<>(maxEntries, Duration.ofSeconds(Math.max(ttlSeconds, 0)),
+                meterRegistry, "mediweb.principal.cache");
+    }
+
+    public AuthenticatedUser get(String email) {
+        if (email == null || !entries.isEnabled()) {
+            return null;
+        }
+        CacheEntry entry = entries.get(email);
+        return entry != null ? new AuthenticatedUser(copyOf(entry.user()), entry.details()) : null;
+    }
+
+    /**
+     * A generáció a betöltés előtt lekért {@link #generation()} érték; ha közben
+     * érvénytelenítés történt, a már elavult adatot nem tároljuk el.
+     */
+    public void put(User user, UserDetails details, long generation) {
+        if (user == null || user.getEmail() == null) {
+            return;
+        }
+        entries.putIf(user.getEmail(), new CacheEntry(copyOf(user), details),
+                () -> invalidations.get() == generation);
+    }
+
+    public long generation() {
+        return invalidations.get();
+    }
+
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        AfterCommit.runNowAndAfterCommit(() -> {
+            invalidations.incrementAndGet();
+            entries.remove(email);
+        });
+    }
+
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.runNowAndAfterCommit(() -> {
+            invalidations.incrementAndGet();
+            entries.removeIf((email, entry) -> userId.equals(entry.user().getId()));
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .gender(user.getGender())
+                .date_of_birth(user.getDate_of_birth())
+                .address(user.getAddress())
+                .phone_number(user.getPhone_number())
+                .registration_date(user.getRegistration_date())
+                .last_login(user.getLast_login())
+                .profile_picture(user.getProfile_picture())
+                .role(user.getRole())
+                .is_active(user.getIs_active())
+                .emailNotificationsEnabled(user.getEmailNotificationsEnabled())
+                .pushNotificationsEnabled(user.getPushNotificationsEnabled())
+                .language(user.getLanguage())
+                .deleted_at(user.getDeleted_at())
+                .build();
+    }
+
+    public record AuthenticatedUser(User user, UserDetails details) {
+    }
+
+    private record CacheEntry(User user, UserDetails details) {
+    }
+}
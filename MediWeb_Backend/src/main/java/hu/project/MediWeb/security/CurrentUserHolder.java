@@ -0,0 +1,39 @@
+package hu.project.MediWeb.security;
+
+import hu.project.MediWeb.modules.user.entity.User;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Optional;
+
+/**
+ * Az aktuális kérés már betöltött felhasználója. A JWT szűrő teszi a kérés
+ * attribútumai közé, így a controllerek ugyanarra a kérésre nem kérdezik le újra.
+ */
+public final class CurrentUserHolder {
+
+    private static final String ATTRIBUTE = CurrentUserHolder.class.getName() + ".user";
+
+    private CurrentUserHolder() {
+    }
+
+    static void set(HttpServletRequest request, User user) {
+        request.setAttribute(ATTRIBUTE, user);
+    }
+
+    /**
+     * A kérés felhasználója, ha a megadott email címhez tartozik.
+     */
+    public static Optional<User> find(String email) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (email == null || attributes == null) {
+            return Optional.empty();
+        }
+        Object user = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user instanceof User current && email.equals(current.getEmail())) {
+            return Optional.of(current);
+        }
+        return Optional.empty();
+    }
+}
@@ -2,6 +2,7 @@ package hu.project.MediWeb.security;
 
 import hu.project.MediWeb.modules.user.entity.User;
 import hu.project.MediWeb.modules.user.repository.UserRepository;
+import hu.project.MediWeb.security.AuthenticatedUserCache.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
@@ -15,10 +16,35 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthenticatedUserCache authenticatedUserCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
+        return toUserDetails(user);
+    }
+
+    /**
+     * A JWT szűrő betöltése: rövid ideig gyorsítótárazva, a felhasználó entitásával együtt.
+     * Bejelentkezéskor továbbra is a {@link #loadUserByUsername} fut, mindig friss adatokkal.
+     */
+    public AuthenticatedUser loadAuthenticatedUser(String email) throws UsernameNotFoundException {
+        AuthenticatedUser cached = authenticatedUserCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = authenticatedUserCache.generation();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        UserDetails details = toUserDetails(user);
+        authenticatedUserCache.put(user, details, generation);
+        return new AuthenticatedUser(user, details);
+    }
+
+    private UserDetails toUserDetails(User user) {
         boolean isEnabled = user.getIs_active() != null ? user.getIs_active() : true;
         
         return new org.springframework.security.core.userdetails.User(
@@ -2,16 +2,19 @@ package hu.project.MediWeb.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Component
 @Slf4j
@@ -23,7 +26,31 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
+    @Value("${jwt.validation-cache.max-entries:10000}")
+    private int validationCacheMaxEntries;
+
+    @Value("${jwt.validation-cache.ttl-seconds:30}")
+    private long validationCacheTtlSeconds;
+
+    // A kulcs és a parser szálbiztos, egyszer építjük fel
+    private Key signingKey;
+    private JwtParser parser;
+    private Map<String, ValidatedToken> validatedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = buildSigningKey();
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        int capacity = Math.max(validationCacheMaxEntries, 1);
+        validatedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidatedToken> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private Key buildSigningKey() {
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
         if (keyBytes.length >= 32) {
             return Keys.hmacShaKeyFor(keyBytes);
@@ -43,15 +70,12 @@ public class JwtUtil {
                 .setSubject(email)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String getEmailFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
+        return parser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
@@ -62,9 +86,8 @@ public class JwtUtil {
      */
     public String getEmailFromExpiredToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
             // Token is not expired — return subject normally
-            return getEmailFromJwtToken(token);
+            return parser.parseClaimsJws(token).getBody().getSubject();
         } catch (ExpiredJwtException e) {
             // Token is expired but signature is valid — extract subject from claims
             return e.getClaims().getSubject();
@@ -72,9 +95,50 @@ public class JwtUtil {
     }
 
     public boolean validateJwtToken(String authToken) {
+        return validateAndGetEmail(authToken) != null;
+    }
+
+    /**
+     * Egyetlen ellenőrzéssel validálja a tokent és visszaadja az emailt, érvénytelen
+     * token esetén null. A már ellenőrzött tokeneket rövid ideig (legfeljebb a
+     * lejáratukig) megjegyezzük; a kulcs a teljes token, mert csak az aláírásra
+     * kulcsolva egy módosított payload ellenőrzés nélkül átmenne.
+     */
+    public String validateAndGetEmail(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            return null;
+        }
+        Instant now = Instant.now();
+        synchronized (validatedTokens) {
+            ValidatedToken cached = validatedTokens.get(authToken);
+            if (cached != null && cached.expiresAt().isAfter(now)) {
+                return cached.email();
+            }
+            if (cached != null) {
+                validatedTokens.remove(authToken);
+            }
+        }
+
+        Claims claims = parseValidClaims(authToken);
+        if (claims == null || claims.getSubject() == null) {
+            return null;
+        }
+
+        if (validationCacheTtlSeconds > 0) {
+            Instant expiresAt = now.plusSeconds(validationCacheTtlSeconds);
+            if (claims.getExpiration() != null && claims.getExpiration().toInstant().isBefore(expiresAt)) {
+                expiresAt = claims.getExpiration().toInstant();
+            }
+            synchronized (validatedTokens) {
+                validatedTokens.put(authToken, new ValidatedToken(claims.getSubject(), expiresAt));
+            }
+        }
+        return claims.getSubject();
+    }
+
+    private Claims parseValidClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(authToken).getBody();
         } catch (MalformedJwtException e) {
             log.warn("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -83,7 +147,12 @@ public class JwtUtil {
             log.warn("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.warn("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.warn("JWT signature is invalid: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    private record ValidatedToken(String email, Instant expiresAt) {
     }
 }
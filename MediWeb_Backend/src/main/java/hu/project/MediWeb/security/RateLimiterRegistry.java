@@ -0,0 +1,140 @@
+package hu.project.MediWeb.security;
+
+import hu.project.MediWeb.config.RateLimitingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A "rate-limiting.rules" szabályai, mindegyikhez külön kliensenkénti korlátozóval,
+ * így az egyik végpont forgalma nem fogyasztja a másik keretét.
+ */
+@Slf4j
+@Component
+public class RateLimiterRegistry {
+
+    /** Csak akkor terhelt, ha a gyógyszer adatlapja ténylegesen az OGYÉI-től töltődik. */
+    public static final String MEDICATION_DETAILS = "medication-details";
+
+    static final String REJECTED_MESSAGE = "Túl sok kérés. Kérjük, próbáld újra később.";
+
+    private final RateLimitingProperties properties;
+    private final Map<String, RuleLimiter> limiters = new LinkedHashMap<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimiterRegistry(RateLimitingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        properties.getRules().forEach((name, rule) -> {
+            StripedRateLimiter limiter = new StripedRateLimiter(rule.getLimit(), rule.getWindowSeconds(),
+                    properties.getStripes(), properties.getMaxTrackedClients());
+            limiters.put(name, new RuleLimiter(rule, limiter,
+                    Counter.builder("mediweb.rate.limit.requests").tag("rule", name).tag("result", "allowed").register(meterRegistry),
+                    Counter.builder("mediweb.rate.limit.requests").tag("rule", name).tag("result", "rejected").register(meterRegistry)));
+            Gauge.builder("mediweb.rate.limit.clients", limiter, StripedRateLimiter::size)
+                    .tag("rule", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Az útvonalhoz tartozó, a szűrő által terhelt szabály neve.
+     */
+    public Optional<String> ruleForPath(String path) {
+        for (Map.Entry<String, RuleLimiter> entry : limiters.entrySet()) {
+            for (String pattern : entry.getValue().rule().getPaths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return Optional.of(entry.getKey());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Egy egység levonása a szabály keretéből, a korlátozó fejlécek beállításával.
+     * Ismeretlen szabálynál nincs korlátozás.
+     */
+    public StripedRateLimiter.Decision tryAcquire(String ruleName, HttpServletRequest request,
+                                                  HttpServletResponse response) {
+        RuleLimiter ruleLimiter = limiters.get(ruleName);
+        if (ruleLimiter == null) {
+            return null;
+        }
+        StripedRateLimiter.Decision decision = ruleLimiter.limiter().tryAcquire(resolveClientKey(request));
+        if (response != null) {
+            response.setHeader("X-RateLimit-Limit", String.valueOf(ruleLimiter.limiter().getLimit()));
+            response.setHeader("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
+            if (!decision.allowed()) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            }
+        }
+        if (decision.allowed()) {
+            ruleLimiter.allowed().increment();
+        } else {
+            ruleLimiter.rejected().increment();
+            log.debug("[RATE-LIMIT] Kérés elutasítva ({}): {} {}", ruleName, request.getMethod(), request.getRequestURI());
+        }
+        return decision;
+    }
+
+    /**
+     * A külső hívás előtt, a kiszolgálás alatt álló kérés terhére von le egy egységet;
+     * kérésen kívül (ütemezett szinkronizálás) nem korlátoz. Elutasításkor
+     * {@link RateLimitExceededException}-t dob, a 429-es választ a webréteg adja.
+     */
+    public void acquireForCurrentRequest(String ruleName) {
+        if (!properties.isEnabled()
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        StripedRateLimiter.Decision decision = tryAcquire(ruleName, attributes.getRequest(), attributes.getResponse());
+        if (decision != null && !decision.allowed()) {
+            throw new RateLimitExceededException(REJECTED_MESSAGE, decision.retryAfterSeconds());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limiting.eviction-interval-ms:60000}")
+    public void evictIdleClients() {
+        int removed = 0;
+        for (RuleLimiter ruleLimiter : limiters.values()) {
+            removed += ruleLimiter.limiter().evictIdle();
+        }
+        if (removed > 0) {
+            log.debug("[RATE-LIMIT] {} inaktív kliens törölve", removed);
+        }
+    }
+
+    private String resolveClientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        // A server.forward-headers-strategy miatt proxy mögött is a valódi kliens címe, nem a proxyé
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private record RuleLimiter(RateLimitingProperties.Rule rule, StripedRateLimiter limiter,
+                               Counter allowed, Counter rejected) {
+    }
+}
@@ -0,0 +1,73 @@
+package hu.project.MediWeb.security;
+
+import hu.project.MediWeb.config.RateLimitingProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Az útvonalakkal megadott "rate-limiting.rules" szabályok terhelése, szabályonként
+ * külön kerettel. A JWT szűrő után fut, így bejelentkezett felhasználónál a fiók,
+ * egyébként a kliens IP címe a kulcs. A csak gyorsítótár-hiánykor drága végpontokat
+ * nem itt, hanem a külső hívás helyén korlátozzuk.
+ */
+@Component
+public class RateLimitingFilter extends OncePerRequestFilter {
+
+    private static final String REJECTED_BODY = "{\"message\":\"" + RateLimiterRegistry.REJECTED_MESSAGE + "\"}";
+    private static final String RULE_ATTRIBUTE = RateLimitingFilter.class.getName() + ".rule";
+
+    private final RateLimitingProperties properties;
+    private final RateLimiterRegistry registry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitingFilter(RateLimitingProperties properties, RateLimiterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!properties.isEnabled() || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : properties.getWhitelistPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return registry.ruleForPath(path)
+                .map(rule -> {
+                    request.setAttribute(RULE_ATTRIBUTE, rule);
+                    return false;
+                })
+                .orElse(true);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        StripedRateLimiter.Decision decision =
+                registry.tryAcquire((String) request.getAttribute(RULE_ATTRIBUTE), request, response);
+        if (decision == null || decision.allowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(REJECTED_BODY);
+    }
+}
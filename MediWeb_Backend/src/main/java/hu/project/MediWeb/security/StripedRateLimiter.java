@@ -0,0 +1,123 @@
+package hu.project.MediWeb.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kliensenkénti token bucket korlátozó. A kulcsok rögzített számú, külön zárral
+ * védett csíkra oszlanak, így a párhuzamos kérések csak azonos csík esetén várnak
+ * egymásra. Csíkonként korlátos, hozzáférési sorrendű táblát tartunk; a teljes
+ * ablaknyi ideje inaktív kliens vödre úgyis tele lenne, ezért veszteség nélkül eldobható.
+ */
+public class StripedRateLimiter {
+
+    private final Stripe[] stripes;
+    private final int limit;
+    private final double tokensPerNano;
+    private final long refillNanos;
+
+    public StripedRateLimiter(int limit, long windowSeconds, int stripeCount, int maxTrackedClients) {
+        this.limit = Math.max(limit, 1);
+        this.refillNanos = TimeUnit.SECONDS.toNanos(Math.max(windowSeconds, 1));
+        this.tokensPerNano = (double) this.limit / refillNanos;
+
+        int count = Integer.highestOneBit(Math.max(stripeCount, 1));
+        int perStripe = Math.max(Math.max(maxTrackedClients, 1) / count, 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    public Decision tryAcquire(String key) {
+        long now = System.nanoTime();
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(limit, now);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.refill(now, tokensPerNano, limit);
+            }
+
+            if (bucket.tokens >= 1.0) {
+                bucket.tokens -= 1.0;
+                return new Decision(true, (long) bucket.tokens, 0);
+            }
+            long waitNanos = (long) Math.ceil((1.0 - bucket.tokens) / tokensPerNano);
+            return new Decision(false, 0, Math.max(TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L), 1));
+        }
+    }
+
+    /**
+     * A teljes ablaknál régebben használt (már teljesen visszatöltődött) vödrök eldobása.
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                int before = stripe.buckets.size();
+                stripe.buckets.values().removeIf(bucket -> now - bucket.lastRefill >= refillNanos);
+                removed += before - stripe.buckets.size();
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    public record Decision(boolean allowed, long remaining, long retryAfterSeconds) {
+    }
+
+    private static final class Stripe {
+        private final Map<String, Bucket> buckets;
+
+        private Stripe(int capacity) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private void refill(long now, double tokensPerNano, int limit) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(limit, tokens + elapsed * tokensPerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -103,5 +103,73 @@ CREATE TABLE IF NOT EXISTS user_data_requests (
     processed_at TIMESTAMP
 );
 
+-- Processing state of the background data-export worker
+ALTER TABLE user_data_requests ADD COLUMN IF NOT EXISTS started_at TIMESTAMP;
+ALTER TABLE user_data_requests ADD COLUMN IF NOT EXISTS result_location TEXT;
+
 -- Add recorded_at column to medication_intake_log for tracking when intake was recorded
 ALTER TABLE medication_intake_log ADD COLUMN IF NOT EXISTS recorded_at TIMESTAMP;
+
+-- Local mirror of the OGYEI search page dropdown lists
+CREATE TABLE IF NOT EXISTS filter_options (
+    id SERIAL PRIMARY KEY,
+    select_name VARCHAR(100) NOT NULL,
+    option_value INTEGER NOT NULL,
+    name VARCHAR(500) NOT NULL,
+    position INTEGER NOT NULL,
+    fetched_at TIMESTAMP NOT NULL,
+    UNIQUE (select_name, option_value)
+);
+
+-- Daily adherence rollup used by the statistics endpoints
+CREATE TABLE IF NOT EXISTS intake_daily_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    profile_medication_id INTEGER NOT NULL REFERENCES profile_medications (id) ON DELETE CASCADE,
+    rollup_date DATE NOT NULL,
+    atc_group VARCHAR(1),
+    taken_count INTEGER NOT NULL DEFAULT 0,
+    missed_count INTEGER NOT NULL DEFAULT 0,
+    hour_histogram INTEGER[] NOT NULL,
+    UNIQUE (profile_medication_id, rollup_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_intake_daily_rollup_user_date ON intake_daily_rollup (user_id, rollup_date);
+
+-- Date-range index for the SQL-side intake aggregation
+CREATE INDEX IF NOT EXISTS idx_medication_intake_log_date_pm ON medication_intake_log (intake_date, profile_medication_id);
+
+-- Daily checkpoints of the approximate search keyword popularity counters
+CREATE TABLE IF NOT EXISTS keyword_popularity (
+    id BIGSERIAL PRIMARY KEY,
+    keyword VARCHAR(200) NOT NULL,
+    bucket_date DATE NOT NULL,
+    hit_count BIGINT NOT NULL,
+    error_bound BIGINT NOT NULL DEFAULT 0,
+    UNIQUE (keyword, bucket_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_keyword_popularity_bucket_date ON keyword_popularity (bucket_date);
+
+-- Per-medication review count, rating sum and 1..5 histogram, maintained on review writes
+CREATE TABLE IF NOT EXISTS medication_rating_aggregate (
+    item_id INTEGER PRIMARY KEY,
+    review_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_histogram INTEGER[] NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- Last HEAD check result per medication image URL (keyed by md5 of the URL)
+CREATE TABLE IF NOT EXISTS image_url_validation (
+    url_hash CHAR(32) PRIMARY KEY,
+    url TEXT NOT NULL,
+    valid BOOLEAN NOT NULL,
+    status_code INTEGER,
+    validated_at TIMESTAMP NOT NULL
+);
+
+-- medication_intake_log is range-partitioned by month on intake_date.
+-- DatabaseMigrationRunner converts an existing plain table (copying rows into
+-- medication_intake_log_pYYYY_MM partitions plus a DEFAULT partition);
+-- IntakeLogPartitionManager creates upcoming months and archives expired ones.
@@ -96,15 +96,18 @@ CREATE TABLE IF NOT EXISTS public.reviews (
 );
 
 CREATE TABLE IF NOT EXISTS public.medication_intake_log (
-    id SERIAL PRIMARY KEY,
+    id SERIAL,
     profile_medication_id INTEGER NOT NULL REFERENCES public.profile_medications (id) ON DELETE CASCADE,
     intake_date DATE NOT NULL,
     intake_time TIME NOT NULL,
     taken BOOLEAN NOT NULL,
     recorded_at TIMESTAMP,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, intake_date),
     UNIQUE (profile_medication_id, intake_date, intake_time)
-);
+) PARTITION BY RANGE (intake_date);
+
+CREATE INDEX IF NOT EXISTS idx_medication_intake_log_date_pm ON public.medication_intake_log (intake_date, profile_medication_id);
 
 CREATE TABLE IF NOT EXISTS public.user_preferences (
     user_id INTEGER PRIMARY KEY REFERENCES public.users (id) ON DELETE CASCADE,
@@ -120,5 +123,58 @@ CREATE TABLE IF NOT EXISTS public.user_data_requests (
     status VARCHAR(50) NOT NULL DEFAULT 'PENDING',
     metadata TEXT,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-    processed_at TIMESTAMP
-);
\ No newline at end of file
+    started_at TIMESTAMP,
+    processed_at TIMESTAMP,
+    result_location TEXT
+);
+
+CREATE TABLE IF NOT EXISTS public.filter_options (
+    id SERIAL PRIMARY KEY,
+    select_name VARCHAR(100) NOT NULL,
+    option_value INTEGER NOT NULL,
+    name VARCHAR(500) NOT NULL,
+    position INTEGER NOT NULL,
+    fetched_at TIMESTAMP NOT NULL,
+    UNIQUE (select_name, option_value)
+);
+
+CREATE TABLE IF NOT EXISTS public.intake_daily_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES public.users (id) ON DELETE CASCADE,
+    profile_medication_id INTEGER NOT NULL REFERENCES public.profile_medications (id) ON DELETE CASCADE,
+    rollup_date DATE NOT NULL,
+    atc_group VARCHAR(1),
+    taken_count INTEGER NOT NULL DEFAULT 0,
+    missed_count INTEGER NOT NULL DEFAULT 0,
+    hour_histogram INTEGER[] NOT NULL,
+    UNIQUE (profile_medication_id, rollup_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_intake_daily_rollup_user_date ON public.intake_daily_rollup (user_id, rollup_date);
+
+CREATE TABLE IF NOT EXISTS public.keyword_popularity (
+    id BIGSERIAL PRIMARY KEY,
+    keyword VARCHAR(200) NOT NULL,
+    bucket_date DATE NOT NULL,
+    hit_count BIGINT NOT NULL,
+    error_bound BIGINT NOT NULL DEFAULT 0,
+    UNIQUE (keyword, bucket_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_keyword_popularity_bucket_date ON public.keyword_popularity (bucket_date);
+
+CREATE TABLE IF NOT EXISTS public.medication_rating_aggregate (
+    item_id INTEGER PRIMARY KEY,
+    review_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_histogram INTEGER[] NOT NULL,
+    updated_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS public.image_url_validation (
+    url_hash CHAR(32) PRIMARY KEY,
+    url TEXT NOT NULL,
+    valid BOOLEAN NOT NULL,
+    status_code INTEGER,
+    validated_at TIMESTAMP NOT NULL
+);
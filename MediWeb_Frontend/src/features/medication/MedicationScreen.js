@@ -30,6 +30,8 @@ export default function MedicationDetailsScreen() {
     reviews,
     averageRating,
     ratingDistribution,
+    hasMoreReviews,
+    loadingMoreReviews,
     currentUser,
     isFavorite,
     favoriteId,
@@ -37,6 +39,7 @@ export default function MedicationDetailsScreen() {
     loading,
     setIsFavorite,
     fetchReviews,
+    loadMoreReviews,
     setFavoriteId,
   } = useMedicationService(itemId);
 
@@ -381,6 +384,9 @@ export default function MedicationDetailsScreen() {
             reviews={reviews}
             averageRating={averageRating}
             ratingDistribution={ratingDistribution}
+            hasMore={hasMoreReviews}
+            loadingMore={loadingMoreReviews}
+            onLoadMore={loadMoreReviews}
             submitting={submitting}
             isLoggedIn={!!currentUser}
             userId={currentUser?.id}
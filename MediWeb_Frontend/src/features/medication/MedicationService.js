@@ -8,6 +8,9 @@ export function useMedicationService(medicationId) {
   const [reviews, setReviews] = useState([]);
   const [averageRating, setAverageRating] = useState(0);
   const [ratingDistribution, setRatingDistribution] = useState({});
+  const [reviewPage, setReviewPage] = useState(0);
+  const [hasMoreReviews, setHasMoreReviews] = useState(false);
+  const [loadingMoreReviews, setLoadingMoreReviews] = useState(false);
   const [currentUser, setCurrentUser] = useState(null);
   const [isFavorite, setIsFavorite] = useState(false);
   const [favoriteId, setFavoriteId] = useState(null);
@@ -57,15 +60,40 @@ export function useMedicationService(medicationId) {
 
   const fetchReviews = useCallback(async () => {
     try {
-      const res = await getReviewsForMedication(medicationId);
-      setReviews(res.reviews || []);
+      const res = await getReviewsForMedication(medicationId, 0);
+      const list = res.reviews || [];
+      // Lapozott lista: a saját értékelés akkor is kell, ha nem az első oldalon van
+      const own = res.ownReview;
+      setReviews(own && !list.some((rev) => rev.userId === own.userId) ? [own, ...list] : list);
       setAverageRating(res.averageRating || 0);
       setRatingDistribution(res.ratingDistribution || {});
+      setReviewPage(0);
+      setHasMoreReviews((res.totalPages || 0) > 1);
     } catch (e) {
       console.error("Hiba a review-k betöltésekor:", e.message || e);
     }
   }, [medicationId]);
 
+  const loadMoreReviews = useCallback(async () => {
+    if (!hasMoreReviews || loadingMoreReviews) {
+      return;
+    }
+    setLoadingMoreReviews(true);
+    try {
+      const nextPage = reviewPage + 1;
+      const res = await getReviewsForMedication(medicationId, nextPage);
+      const list = res.reviews || [];
+      // Az első oldal elé tett saját értékelés később a saját oldalán is megjön
+      setReviews((prev) => [...prev, ...list.filter((rev) => !prev.some((p) => p.userId === rev.userId))]);
+      setReviewPage(nextPage);
+      setHasMoreReviews(nextPage + 1 < (res.totalPages || 0));
+    } catch (e) {
+      console.error("Hiba a további review-k betöltésekor:", e.message || e);
+    } finally {
+      setLoadingMoreReviews(false);
+    }
+  }, [medicationId, reviewPage, hasMoreReviews, loadingMoreReviews]);
+
   const fetchFavorites = useCallback(async () => {
     try {
       const favorites = await getFavorites();
@@ -107,6 +135,8 @@ export function useMedicationService(medicationId) {
     reviews,
     averageRating,
     ratingDistribution,
+    hasMoreReviews,
+    loadingMoreReviews,
     currentUser,
     isFavorite,
     favoriteId,
@@ -116,6 +146,7 @@ export function useMedicationService(medicationId) {
     setIsFavorite,
     setFavoriteId,
     fetchReviews,
+    loadMoreReviews,
     fetchFavorites,
     fetchDetails,
   };
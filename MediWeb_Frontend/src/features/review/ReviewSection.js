@@ -14,6 +14,9 @@ export default function ReviewSection({
   reviews = [],
   averageRating = 0,
   ratingDistribution = {},
+  hasMore = false,
+  loadingMore = false,
+  onLoadMore,
   onSubmit,
   updateReview,
   submitting,
@@ -220,7 +223,7 @@ export default function ReviewSection({
               <Text style={styles.reviewText}>👎 {rev.negative}</Text>
             </View>
           ))
-        ) : ownReview ? (
+        ) : hasMore ? null : ownReview ? (
           <View style={styles.noReviewsBox}>
             <FontAwesome name="user-circle" size={28} color={theme.colors.textSecondary} style={{ marginBottom: 6 }} />
             <Text style={styles.noReviewsTitle}>Csak a te értékelésed érkezett eddig</Text>
@@ -243,6 +246,20 @@ export default function ReviewSection({
             )}
           </View>
         )}
+
+        {hasMore && (
+          <TouchableOpacity
+            onPress={onLoadMore}
+            disabled={loadingMore}
+            style={styles.loadMoreButton}
+          >
+            {loadingMore ? (
+              <ActivityIndicator size="small" color={theme.colors.primary} />
+            ) : (
+              <Text style={styles.loadMoreText}>További értékelések betöltése</Text>
+            )}
+          </TouchableOpacity>
+        )}
       </View>
 
       {/* Report Modal */}
@@ -213,4 +213,19 @@ export const createStyles = (theme) => StyleSheet.create({
     textDecorationLine: "underline",
     marginLeft: 4,
   },
+  loadMoreButton: {
+    marginTop: 16,
+    paddingVertical: 12,
+    paddingHorizontal: 24,
+    backgroundColor: theme.colors.backgroundCard,
+    borderRadius: theme.borderRadius.md,
+    alignSelf: "center",
+    borderWidth: 2,
+    borderColor: theme.colors.primary,
+  },
+  loadMoreText: {
+    fontSize: theme.fontSize.base,
+    color: theme.colors.primary,
+    fontWeight: theme.fontWeight.semibold,
+  },
 });
@@ -1,7 +1,7 @@
 import api from "api/config";
 
-export const getReviewsForMedication = async (itemId) => {
-  const response = await api.get(`/api/reviews/${itemId}`);
+export const getReviewsForMedication = async (itemId, page = 0, size = 20) => {
+  const response = await api.get(`/api/reviews/${itemId}`, { params: { page, size } });
   return response.data;
 };
 